@@ -0,0 +1,592 @@
+package com.suwec.framework.utils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.util.Arrays;
+
+/**
+ * 查表实现的Base64编解码
+ * <p>
+ * 编码和解码都只查一次表，结果写入调用者提供的数组；{@link #encodeToString}和{@link #decode(CharSequence)}
+ * 使用每个线程复用的缓冲区，只分配最终结果。解码直接读取CharSequence，不需要先转为字符串或字节数组，
+ * 同时接受标准字符集和URL安全字符集，忽略空白字符。标志位的取值与android.util.Base64相同。
+ * </p>
+ */
+public final class Base64Codec {
+	/** 每76个字符换行('\n')，末尾补'=' */
+	public static final int DEFAULT = 0;
+	/** 末尾不补'=' */
+	public static final int NO_PADDING = 1;
+	/** 不换行 */
+	public static final int NO_WRAP = 2;
+	/** 使用'-'和'_'代替'+'和'/' */
+	public static final int URL_SAFE = 8;
+
+	/** 每行的4字符组数(76个字符) */
+	private static final int LINE_GROUPS = 19;
+	/** 流式编解码的缓冲区大小 */
+	private static final int STREAM_BUFFER_SIZE = 8 * 1024;
+	/** 线程缓冲区超过该容量时用完即丢弃，避免线程长期持有大块内存 */
+	private static final int MAX_RETAINED_BUFFER = 1024 * 1024;
+
+	private static final byte[] ENCODE_STANDARD = alphabet('+', '/');
+	private static final byte[] ENCODE_URL_SAFE = alphabet('-', '_');
+
+	private static final byte INVALID = -1;
+	private static final byte WHITESPACE = -2;
+	private static final byte PAD = -3;
+	/** ASCII字符到6位值的映射，同时包含两种字符集 */
+	private static final byte[] DECODE = new byte[128];
+
+	static {
+		Arrays.fill(DECODE, INVALID);
+		for (int i = 0; i < 64; i++) {
+			DECODE[ENCODE_STANDARD[i]] = (byte) i;
+			DECODE[ENCODE_URL_SAFE[i]] = (byte) i;
+		}
+		DECODE[' '] = WHITESPACE;
+		DECODE['\t'] = WHITESPACE;
+		DECODE['\r'] = WHITESPACE;
+		DECODE['\n'] = WHITESPACE;
+		DECODE['='] = PAD;
+	}
+
+	private static final ThreadLocal<byte[]> sByteBuffer = new ThreadLocal<byte[]>();
+	private static final ThreadLocal<char[]> sCharBuffer = new ThreadLocal<char[]>();
+
+	private Base64Codec() {
+		throw new UnsupportedOperationException();
+	}
+
+	private static byte[] alphabet(char c62, char c63) {
+		byte[] table = new byte[64];
+		int i = 0;
+		for (char c = 'A'; c <= 'Z'; c++) {
+			table[i++] = (byte) c;
+		}
+		for (char c = 'a'; c <= 'z'; c++) {
+			table[i++] = (byte) c;
+		}
+		for (char c = '0'; c <= '9'; c++) {
+			table[i++] = (byte) c;
+		}
+		table[i++] = (byte) c62;
+		table[i] = (byte) c63;
+		return table;
+	}
+
+	private static byte[] encodeTable(int flags) {
+		return (flags & URL_SAFE) != 0 ? ENCODE_URL_SAFE : ENCODE_STANDARD;
+	}
+
+	/**
+	 * 编码len个字节得到的字符数(含换行)
+	 */
+	public static int encodedLength(int len, int flags) {
+		int rem = len % 3;
+		int chars = len / 3 * 4;
+		if (rem != 0) {
+			chars += (flags & NO_PADDING) == 0 ? 4 : rem + 1;
+		}
+		if ((flags & NO_WRAP) == 0 && chars > 0) {
+			chars += (chars + 75) / 76;
+		}
+		return chars;
+	}
+
+	/**
+	 * 解码len个字符最多得到的字节数
+	 */
+	public static int maxDecodedLength(int len) {
+		return len / 4 * 3 + 2;
+	}
+
+	/**
+	 * 编码到调用者提供的字节数组
+	 *
+	 * @param dst
+	 *            至少要有{@link #encodedLength(int, int)}个字节的空间
+	 * @return 写入的字节数
+	 */
+	public static int encode(byte[] src, int off, int len, byte[] dst, int dstOff, int flags) {
+		checkRange(src.length, off, len);
+		byte[] table = encodeTable(flags);
+		boolean wrap = (flags & NO_WRAP) == 0;
+		int si = off;
+		int di = dstOff;
+		int groups = len / 3;
+		int lineGroups = 0;
+		while (groups > 0) {
+			int n = wrap ? Math.min(groups, LINE_GROUPS - lineGroups) : groups;
+			di = encodeGroups(src, si, n, table, dst, di);
+			si += n * 3;
+			groups -= n;
+			lineGroups += n;
+			if (wrap && lineGroups == LINE_GROUPS) {
+				dst[di++] = '\n';
+				lineGroups = 0;
+			}
+		}
+		int rem = off + len - si;
+		if (rem > 0) {
+			di = encodeTail(src, si, rem, table, (flags & NO_PADDING) == 0, dst, di);
+			lineGroups++;
+		}
+		if (wrap && lineGroups > 0) {
+			dst[di++] = '\n';
+		}
+		return di - dstOff;
+	}
+
+	/**
+	 * 编码到调用者提供的字符数组
+	 *
+	 * @param dst
+	 *            至少要有{@link #encodedLength(int, int)}个字符的空间
+	 * @return 写入的字符数
+	 */
+	public static int encode(byte[] src, int off, int len, char[] dst, int dstOff, int flags) {
+		checkRange(src.length, off, len);
+		byte[] table = encodeTable(flags);
+		boolean wrap = (flags & NO_WRAP) == 0;
+		int si = off;
+		int di = dstOff;
+		int groups = len / 3;
+		int lineGroups = 0;
+		while (groups-- > 0) {
+			int bits = (src[si] & 0xff) << 16 | (src[si + 1] & 0xff) << 8 | (src[si + 2] & 0xff);
+			si += 3;
+			dst[di] = (char) table[bits >>> 18];
+			dst[di + 1] = (char) table[(bits >>> 12) & 0x3f];
+			dst[di + 2] = (char) table[(bits >>> 6) & 0x3f];
+			dst[di + 3] = (char) table[bits & 0x3f];
+			di += 4;
+			if (wrap && ++lineGroups == LINE_GROUPS) {
+				dst[di++] = '\n';
+				lineGroups = 0;
+			}
+		}
+		int rem = off + len - si;
+		if (rem > 0) {
+			int bits = (src[si] & 0xff) << 16 | (rem == 2 ? (src[si + 1] & 0xff) << 8 : 0);
+			dst[di++] = (char) table[bits >>> 18];
+			dst[di++] = (char) table[(bits >>> 12) & 0x3f];
+			if (rem == 2) {
+				dst[di++] = (char) table[(bits >>> 6) & 0x3f];
+			}
+			if ((flags & NO_PADDING) == 0) {
+				dst[di++] = '=';
+				if (rem == 1) {
+					dst[di++] = '=';
+				}
+			}
+			lineGroups++;
+		}
+		if (wrap && lineGroups > 0) {
+			dst[di++] = '\n';
+		}
+		return di - dstOff;
+	}
+
+	/**
+	 * 编码为字符串。中间结果写入线程复用的缓冲区，只分配最终的字符串
+	 */
+	public static String encodeToString(byte[] src, int off, int len, int flags) {
+		char[] buffer = obtainCharBuffer(encodedLength(len, flags));
+		int count = encode(src, off, len, buffer, 0, flags);
+		return new String(buffer, 0, count);
+	}
+
+	public static String encodeToString(byte[] src, int flags) {
+		return encodeToString(src, 0, src.length, flags);
+	}
+
+	/**
+	 * 连续编码n组完整的3字节
+	 */
+	private static int encodeGroups(byte[] src, int si, int n, byte[] table, byte[] dst, int di) {
+		for (int end = si + n * 3; si < end; si += 3) {
+			int bits = (src[si] & 0xff) << 16 | (src[si + 1] & 0xff) << 8 | (src[si + 2] & 0xff);
+			dst[di] = table[bits >>> 18];
+			dst[di + 1] = table[(bits >>> 12) & 0x3f];
+			dst[di + 2] = table[(bits >>> 6) & 0x3f];
+			dst[di + 3] = table[bits & 0x3f];
+			di += 4;
+		}
+		return di;
+	}
+
+	/**
+	 * 编码末尾不足3字节的部分
+	 */
+	private static int encodeTail(byte[] src, int si, int rem, byte[] table, boolean pad, byte[] dst, int di) {
+		int bits = (src[si] & 0xff) << 16 | (rem == 2 ? (src[si + 1] & 0xff) << 8 : 0);
+		dst[di++] = table[bits >>> 18];
+		dst[di++] = table[(bits >>> 12) & 0x3f];
+		if (rem == 2) {
+			dst[di++] = table[(bits >>> 6) & 0x3f];
+		}
+		if (pad) {
+			dst[di++] = '=';
+			if (rem == 1) {
+				dst[di++] = '=';
+			}
+		}
+		return di;
+	}
+
+	/**
+	 * 解码到调用者提供的字节数组。两种字符集都可识别，空白字符被忽略，末尾的'='可有可无
+	 *
+	 * @param dst
+	 *            至少要有{@link #maxDecodedLength(int)}个字节的空间
+	 * @return 写入的字节数
+	 * @throws IllegalArgumentException
+	 *             含有非法字符或'='之后还有数据
+	 */
+	public static int decode(CharSequence src, int start, int end, byte[] dst, int dstOff) {
+		int bits = 0;
+		int count = 0;
+		int di = dstOff;
+		boolean padded = false;
+		for (int i = start; i < end; i++) {
+			char c = src.charAt(i);
+			int value = c < 128 ? DECODE[c] : INVALID;
+			if (value >= 0) {
+				if (padded) {
+					throw new IllegalArgumentException("bad base-64: data after padding at " + i);
+				}
+				bits = bits << 6 | value;
+				if (++count == 4) {
+					dst[di] = (byte) (bits >> 16);
+					dst[di + 1] = (byte) (bits >> 8);
+					dst[di + 2] = (byte) bits;
+					di += 3;
+					bits = 0;
+					count = 0;
+				}
+			} else if (value == PAD) {
+				padded = true;
+			} else if (value != WHITESPACE) {
+				throw new IllegalArgumentException("bad base-64: illegal character at " + i);
+			}
+		}
+		return decodeTail(bits, count, dst, di) - dstOff;
+	}
+
+	/**
+	 * 解码为字节数组。中间结果写入线程复用的缓冲区，只分配最终的数组
+	 *
+	 * @throws IllegalArgumentException
+	 *             不是合法的base64
+	 */
+	public static byte[] decode(CharSequence src) {
+		int len = src.length();
+		byte[] buffer = obtainByteBuffer(maxDecodedLength(len));
+		int count = decode(src, 0, len, buffer, 0);
+		byte[] result = new byte[count];
+		System.arraycopy(buffer, 0, result, 0, count);
+		return result;
+	}
+
+	/**
+	 * 写出末尾不足4个字符的部分
+	 */
+	private static int decodeTail(int bits, int count, byte[] dst, int di) {
+		switch (count) {
+		case 0:
+			return di;
+		case 2:
+			dst[di++] = (byte) (bits >> 4);
+			return di;
+		case 3:
+			dst[di++] = (byte) (bits >> 10);
+			dst[di++] = (byte) (bits >> 2);
+			return di;
+		default:
+			throw new IllegalArgumentException("bad base-64: truncated input");
+		}
+	}
+
+	/**
+	 * 当前线程复用的字节缓冲区，内容在本线程下次调用前有效
+	 */
+	static byte[] obtainByteBuffer(int minCapacity) {
+		byte[] buffer = sByteBuffer.get();
+		if (buffer == null || buffer.length < minCapacity) {
+			buffer = new byte[Math.max(minCapacity, STREAM_BUFFER_SIZE)];
+			if (buffer.length <= MAX_RETAINED_BUFFER) {
+				sByteBuffer.set(buffer);
+			}
+		}
+		return buffer;
+	}
+
+	private static char[] obtainCharBuffer(int minCapacity) {
+		char[] buffer = sCharBuffer.get();
+		if (buffer == null || buffer.length < minCapacity) {
+			buffer = new char[Math.max(minCapacity, STREAM_BUFFER_SIZE)];
+			if (buffer.length <= MAX_RETAINED_BUFFER) {
+				sCharBuffer.set(buffer);
+			}
+		}
+		return buffer;
+	}
+
+	private static void checkRange(int length, int off, int len) {
+		if (off < 0 || len < 0 || off > length - len) {
+			throw new IndexOutOfBoundsException("length=" + length + ", off=" + off + ", len=" + len);
+		}
+	}
+
+	/**
+	 * 边写入边编码的输出流，编码结果写入OutputStream或Writer。
+	 * 写完后调用{@link #finish()}写出末尾部分且不关闭目标；{@link #close()}会同时关闭目标
+	 */
+	public static final class EncoderOutputStream extends OutputStream {
+		private final OutputStream out;
+		private final Writer writer;
+		private final byte[] table;
+		private final boolean wrap;
+		private final boolean pad;
+		/** 尚未凑满3字节的输入 */
+		private final byte[] pending = new byte[3];
+		private int pendingCount;
+		/** 编码结果缓冲区 */
+		private final byte[] buffer = new byte[STREAM_BUFFER_SIZE];
+		private int count;
+		/** 写入Writer时的字符缓冲区 */
+		private final char[] chars;
+		private final byte[] single = new byte[1];
+		private int lineGroups;
+		private boolean finished;
+
+		public EncoderOutputStream(OutputStream out, int flags) {
+			this(out, null, flags);
+		}
+
+		public EncoderOutputStream(Writer writer, int flags) {
+			this(null, writer, flags);
+		}
+
+		private EncoderOutputStream(OutputStream out, Writer writer, int flags) {
+			this.out = out;
+			this.writer = writer;
+			this.table = encodeTable(flags);
+			this.wrap = (flags & NO_WRAP) == 0;
+			this.pad = (flags & NO_PADDING) == 0;
+			this.chars = writer != null ? new char[STREAM_BUFFER_SIZE] : null;
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			single[0] = (byte) b;
+			write(single, 0, 1);
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			checkRange(b.length, off, len);
+			if (finished) {
+				throw new IOException("already finished");
+			}
+			// 先凑满上次剩下的不完整组
+			while (pendingCount > 0 && pendingCount < 3 && len > 0) {
+				pending[pendingCount++] = b[off++];
+				len--;
+			}
+			if (pendingCount == 3) {
+				encode(pending, 0, 1);
+				pendingCount = 0;
+			}
+			int groups = len / 3;
+			encode(b, off, groups);
+			off += groups * 3;
+			len -= groups * 3;
+			while (len-- > 0) {
+				pending[pendingCount++] = b[off++];
+			}
+		}
+
+		/**
+		 * 编码n组完整的3字节，按行长换行，缓冲区满时写出
+		 */
+		private void encode(byte[] src, int si, int groups) throws IOException {
+			while (groups > 0) {
+				int room = (buffer.length - count - 1) / 4;
+				if (room == 0) {
+					flushBuffer();
+					continue;
+				}
+				int n = Math.min(groups, room);
+				if (wrap) {
+					n = Math.min(n, LINE_GROUPS - lineGroups);
+				}
+				count = encodeGroups(src, si, n, table, buffer, count);
+				si += n * 3;
+				groups -= n;
+				if (wrap && (lineGroups += n) == LINE_GROUPS) {
+					buffer[count++] = '\n';
+					lineGroups = 0;
+				}
+			}
+		}
+
+		/**
+		 * 写出末尾不足3字节的部分和缓冲区，不关闭目标。之后不能再写入
+		 */
+		public void finish() throws IOException {
+			if (finished) {
+				return;
+			}
+			finished = true;
+			if (buffer.length - count < 5) {
+				flushBuffer();
+			}
+			if (pendingCount > 0) {
+				count = encodeTail(pending, 0, pendingCount, table, pad, buffer, count);
+				pendingCount = 0;
+				lineGroups++;
+			}
+			if (wrap && lineGroups > 0) {
+				buffer[count++] = '\n';
+			}
+			flush();
+		}
+
+		@Override
+		public void flush() throws IOException {
+			flushBuffer();
+			if (out != null) {
+				out.flush();
+			} else {
+				writer.flush();
+			}
+		}
+
+		private void flushBuffer() throws IOException {
+			if (count == 0) {
+				return;
+			}
+			if (out != null) {
+				out.write(buffer, 0, count);
+			} else {
+				for (int i = 0; i < count; i++) {
+					chars[i] = (char) buffer[i];
+				}
+				writer.write(chars, 0, count);
+			}
+			count = 0;
+		}
+
+		@Override
+		public void close() throws IOException {
+			try {
+				finish();
+			} finally {
+				if (out != null) {
+					out.close();
+				} else {
+					writer.close();
+				}
+			}
+		}
+	}
+
+	/**
+	 * 直接从CharSequence边读取边解码的输入流，不复制原字符序列。两种字符集都可识别，空白字符被忽略
+	 */
+	public static final class DecoderInputStream extends InputStream {
+		private final CharSequence src;
+		private final int end;
+		private int position;
+		private int bits;
+		private int bitCount;
+		private boolean padded;
+		private boolean finished;
+		/** 目标空间不足3字节时先解码到这里 */
+		private final byte[] pending = new byte[3];
+		private int pendingPosition;
+		private int pendingCount;
+		private final byte[] single = new byte[1];
+
+		public DecoderInputStream(CharSequence src) {
+			this(src, 0, src.length());
+		}
+
+		public DecoderInputStream(CharSequence src, int start, int end) {
+			this.src = src;
+			this.position = start;
+			this.end = end;
+		}
+
+		@Override
+		public int read() throws IOException {
+			return read(single, 0, 1) == 1 ? single[0] & 0xff : -1;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			checkRange(b.length, off, len);
+			int start = off;
+			int limit = off + len;
+			while (off < limit) {
+				if (pendingPosition < pendingCount) {
+					b[off++] = pending[pendingPosition++];
+				} else if (finished) {
+					break;
+				} else if (limit - off >= 3) {
+					off = decodeInto(b, off, limit);
+				} else {
+					pendingPosition = 0;
+					pendingCount = decodeInto(pending, 0, pending.length);
+				}
+			}
+			return off == start && len > 0 ? -1 : off - start;
+		}
+
+		/**
+		 * 解码完整的4字符组直到目标空间不足3字节或输入结束
+		 */
+		private int decodeInto(byte[] dst, int di, int limit) throws IOException {
+			while (di + 3 <= limit) {
+				if (position == end) {
+					finished = true;
+					try {
+						return decodeTail(bits, bitCount, dst, di);
+					} catch (IllegalArgumentException e) {
+						throw new IOException(e.getMessage());
+					}
+				}
+				char c = src.charAt(position++);
+				int value = c < 128 ? DECODE[c] : INVALID;
+				if (value >= 0) {
+					if (padded) {
+						throw new IOException("bad base-64: data after padding at " + (position - 1));
+					}
+					bits = bits << 6 | value;
+					if (++bitCount == 4) {
+						dst[di] = (byte) (bits >> 16);
+						dst[di + 1] = (byte) (bits >> 8);
+						dst[di + 2] = (byte) bits;
+						di += 3;
+						bits = 0;
+						bitCount = 0;
+					}
+				} else if (value == PAD) {
+					padded = true;
+				} else if (value != WHITESPACE) {
+					throw new IOException("bad base-64: illegal character at " + (position - 1));
+				}
+			}
+			return di;
+		}
+
+		@Override
+		public int available() {
+			return pendingCount - pendingPosition;
+		}
+	}
+}
@@ -0,0 +1,155 @@
+package com.suwec.framework.utils;
+
+import android.annotation.TargetApi;
+import android.app.ActivityManager;
+import android.content.Context;
+import android.graphics.Bitmap.Config;
+import android.graphics.BitmapFactory;
+import android.os.Build;
+
+/**
+ * 解码Config选择策略
+ * <p>
+ * API 26+只用于显示的图片使用HARDWARE(像素只保存在显存中，不占用应用内存)；不透明的JPEG在调用者允许时使用RGB_565，
+ * 像素内存减半；需要透明通道或读写像素时才使用ARGB_8888。AUTO模式下是否使用RGB_565由全局内存预算决定，
+ * 预算根据ActivityManager.getMemoryClass()计算，应在Application.onCreate()中调用{@link #init(Context)}。
+ * </p>
+ */
+public class BitmapConfigPolicy {
+	private static final long MB = 1024 * 1024;
+	/** 内存等级(MB)不超过该值时视为低内存设备 */
+	private static final int LOW_MEMORY_CLASS = 64;
+	/** 解码像素的预算为应用内存上限的1/4 */
+	private static final int BUDGET_DIVISOR = 4;
+	/** 单张图片按ARGB_8888解码超过预算的1/8时视为内存紧张 */
+	private static final int SINGLE_IMAGE_DIVISOR = 8;
+
+	/**
+	 * 颜色精度
+	 */
+	public enum ColorMode {
+		/** 始终使用ARGB_8888 */
+		FULL,
+		/** 不透明图片使用RGB_565 */
+		COMPACT,
+		/** 不透明图片在内存紧张(低内存设备、单张图片过大或已缓存的图片接近预算)时使用RGB_565 */
+		AUTO
+	}
+
+	/** 应用内存上限，未初始化时取虚拟机的最大内存 */
+	private static volatile long sMemoryClassBytes = Runtime.getRuntime().maxMemory();
+	private static volatile boolean sLowRamDevice;
+
+	private BitmapConfigPolicy() {
+		/* cannot be instantiated */
+		throw new UnsupportedOperationException("cannot be instantiated");
+	}
+
+	/**
+	 * 根据设备的内存等级初始化内存预算
+	 */
+	public static void init(Context context) {
+		ActivityManager am = (ActivityManager) context.getApplicationContext().getSystemService(
+				Context.ACTIVITY_SERVICE);
+		if (am == null) {
+			return;
+		}
+		sMemoryClassBytes = am.getMemoryClass() * MB;
+		sLowRamDevice = am.isLowRamDevice();
+	}
+
+	/**
+	 * 解码像素的内存预算(字节)
+	 */
+	public static long getPixelBudget() {
+		return sMemoryClassBytes / BUDGET_DIVISOR;
+	}
+
+	/**
+	 * 再解码指定字节数的图片时是否内存紧张
+	 */
+	public static boolean isMemoryConstrained(long bytes) {
+		if (sLowRamDevice || sMemoryClassBytes <= LOW_MEMORY_CLASS * MB) {
+			return true;
+		}
+		long budget = getPixelBudget();
+		return bytes > budget / SINGLE_IMAGE_DIVISOR || BitmapUtil.getMemoryCache().size() + bytes > budget;
+	}
+
+	/**
+	 * 该格式的图片是否一定不透明。只有JPEG可以仅凭格式判断，其他格式按可能带透明通道处理
+	 */
+	public static boolean isOpaque(String mimeType) {
+		return "image/jpeg".equals(mimeType);
+	}
+
+	/**
+	 * 选择解码使用的Config
+	 *
+	 * @param mimeType
+	 *            图片格式(BitmapFactory.Options.outMimeType)，未知时为null
+	 * @param width
+	 *            解码后的宽度
+	 * @param height
+	 *            解码后的高度
+	 * @param colorMode
+	 *            调用者允许的颜色精度
+	 * @param displayOnly
+	 *            是否只用于显示(不读写像素、不在其上绘制、不放入复用池)
+	 */
+	public static Config chooseConfig(String mimeType, int width, int height, ColorMode colorMode, boolean displayOnly) {
+		if (displayOnly && Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+			return hardwareConfig();
+		}
+		if (colorMode != ColorMode.FULL && isOpaque(mimeType)) {
+			if (colorMode == ColorMode.COMPACT || isMemoryConstrained((long) width * height * 4)) {
+				return Config.RGB_565;
+			}
+		}
+		return Config.ARGB_8888;
+	}
+
+	/**
+	 * 在已读取尺寸、已设置采样率的options上设置inPreferredConfig。选择HARDWARE时不能复用位图
+	 */
+	public static void apply(BitmapFactory.Options options, ColorMode colorMode, boolean displayOnly) {
+		int sampleSize = Math.max(1, options.inSampleSize);
+		int width = options.outWidth / sampleSize;
+		int height = options.outHeight / sampleSize;
+		if (options.inScaled && options.inDensity > 0 && options.inTargetDensity > 0) {
+			float scale = (float) options.inTargetDensity / options.inDensity;
+			width = (int) (width * scale + 0.5f);
+			height = (int) (height * scale + 0.5f);
+		}
+		options.inPreferredConfig = chooseConfig(options.outMimeType, width, height, colorMode, displayOnly);
+		if (isHardware(options.inPreferredConfig)) {
+			options.inMutable = false;
+			options.inBitmap = null;
+		}
+	}
+
+	/**
+	 * 按该策略解码时结果可能使用的Config，用于在解码前(不读取文件)查找缓存
+	 */
+	public static Config[] candidateConfigs(ColorMode colorMode, boolean displayOnly) {
+		if (displayOnly && Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+			return new Config[] { hardwareConfig() };
+		}
+		if (colorMode == ColorMode.FULL) {
+			return new Config[] { Config.ARGB_8888 };
+		}
+		return new Config[] { Config.RGB_565, Config.ARGB_8888 };
+	}
+
+	/**
+	 * 是否是HARDWARE(像素不可访问，不能作为inBitmap或在软件画布上绘制)
+	 */
+	public static boolean isHardware(Config config) {
+		return Build.VERSION.SDK_INT >= Build.VERSION_CODES.O && config == hardwareConfig();
+	}
+
+	@TargetApi(Build.VERSION_CODES.O)
+	private static Config hardwareConfig() {
+		return Config.HARDWARE;
+	}
+}
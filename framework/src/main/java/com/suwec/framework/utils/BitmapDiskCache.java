@@ -0,0 +1,631 @@
+package com.suwec.framework.utils;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UnsupportedEncodingException;
+import java.io.Writer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ * 图片磁盘缓存(按总大小LRU淘汰)
+ * <p>
+ * 每个条目是目录中以键命名的一个文件。所有操作追加到日志文件：
+ * DIRTY表示开始写入，CLEAN表示写入完成(附带大小)，REMOVE表示删除，READ表示被访问。
+ * 写入先写到"键.tmp"，完成后重命名并记录CLEAN，进程在写入中途被杀时，
+ * 下次打开会发现没有CLEAN的DIRTY记录并删除残留的临时文件；日志末尾不完整时丢弃该行并重建日志。
+ * 冗余记录过多时重写日志(先写临时文件再重命名)。
+ * </p>
+ * 用法：
+ * <pre>
+ * BitmapDiskCache cache = BitmapDiskCache.open(new File(context.getCacheDir(), "images"), 50 * 1024 * 1024);
+ * String key = BitmapDiskCache.hashKey(path, file.length(), file.lastModified(), "w=1024", "q=80");
+ * File cached = cache.get(key);
+ * if (cached == null) {
+ *     cached = cache.put(key, data, 0, data.length);
+ * }
+ * </pre>
+ */
+public final class BitmapDiskCache implements Closeable {
+	private static final String TAG = "BitmapDiskCache";
+	static final String JOURNAL_FILE = "journal";
+	static final String JOURNAL_FILE_TEMP = "journal.tmp";
+	static final String JOURNAL_FILE_BACKUP = "journal.bkp";
+	private static final String MAGIC = "suwec.BitmapDiskCache";
+	private static final String VERSION = "1";
+	private static final String CLEAN = "CLEAN";
+	private static final String DIRTY = "DIRTY";
+	private static final String REMOVE = "REMOVE";
+	private static final String READ = "READ";
+	private static final String TEMP_SUFFIX = ".tmp";
+	/** 冗余记录超过该数量且超过条目数时重写日志 */
+	private static final int REDUNDANT_OP_COMPACT_THRESHOLD = 2000;
+	/** 键的最大长度 */
+	private static final int MAX_KEY_LENGTH = 120;
+
+	private final File directory;
+	private final File journalFile;
+	private final File journalFileTemp;
+	private final File journalFileBackup;
+	private long maxSize;
+	private long size;
+	private Writer journalWriter;
+	/** 按访问顺序排列，最久未访问的在前 */
+	private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<String, Entry>(0, 0.75f, true);
+	private int redundantOpCount;
+
+	private BitmapDiskCache(File directory, long maxSize) {
+		this.directory = directory;
+		this.maxSize = maxSize;
+		this.journalFile = new File(directory, JOURNAL_FILE);
+		this.journalFileTemp = new File(directory, JOURNAL_FILE_TEMP);
+		this.journalFileBackup = new File(directory, JOURNAL_FILE_BACKUP);
+	}
+
+	/**
+	 * 打开缓存目录，根据日志恢复索引。目录不存在时创建
+	 *
+	 * @param directory
+	 *            缓存目录，只能由一个缓存实例使用
+	 * @param maxSize
+	 *            最大总字节数
+	 */
+	public static BitmapDiskCache open(File directory, long maxSize) throws IOException {
+		if (maxSize <= 0) {
+			throw new IllegalArgumentException("maxSize <= 0");
+		}
+		if (!directory.exists() && !directory.mkdirs() && !directory.exists()) {
+			throw new IOException("cannot create directory: " + directory);
+		}
+		BitmapDiskCache cache = new BitmapDiskCache(directory, maxSize);
+		// 重写日志时被中断：备份仍在说明新日志可能不完整
+		if (cache.journalFileBackup.exists()) {
+			if (cache.journalFile.exists()) {
+				cache.journalFileBackup.delete();
+			} else {
+				cache.journalFileBackup.renameTo(cache.journalFile);
+			}
+		}
+		boolean rebuild = true;
+		if (cache.journalFile.exists()) {
+			try {
+				rebuild = !cache.readJournal();
+				cache.processJournal();
+			} catch (IOException e) {
+				Logs.w(TAG, "journal is corrupt, clearing cache: " + directory, e);
+				cache.entries.clear();
+				cache.size = 0;
+				deleteContents(directory);
+			}
+		}
+		if (rebuild || cache.journalRebuildRequired()) {
+			cache.rebuildJournal();
+		} else {
+			cache.journalWriter = newJournalWriter(cache.journalFile, true);
+		}
+		cache.trimToSize();
+		return cache;
+	}
+
+	/**
+	 * 根据来源标识、修改时间和处理参数生成键(SHA-1十六进制)
+	 *
+	 * @param parts
+	 *            组成键的各部分，任一部分不同都会得到不同的键
+	 */
+	public static String hashKey(Object... parts) {
+		StringBuilder sb = new StringBuilder();
+		for (Object part : parts) {
+			sb.append(part).append('\u0000');
+		}
+		try {
+			byte[] digest = MessageDigest.getInstance("SHA-1").digest(sb.toString().getBytes("UTF-8"));
+			char[] hex = new char[digest.length * 2];
+			for (int i = 0; i < digest.length; i++) {
+				hex[i * 2] = Character.forDigit((digest[i] >> 4) & 0xF, 16);
+				hex[i * 2 + 1] = Character.forDigit(digest[i] & 0xF, 16);
+			}
+			return new String(hex);
+		} catch (NoSuchAlgorithmException e) {
+			throw new AssertionError(e);
+		} catch (UnsupportedEncodingException e) {
+			throw new AssertionError(e);
+		}
+	}
+
+	/**
+	 * 读取日志，恢复条目和访问顺序
+	 *
+	 * @return 日志是否完整。末尾有不完整或无法识别的记录时返回false，需要重写日志
+	 */
+	private boolean readJournal() throws IOException {
+		BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(journalFile), "US-ASCII"));
+		try {
+			if (!MAGIC.equals(reader.readLine()) || !VERSION.equals(reader.readLine()) || !"".equals(reader.readLine())) {
+				throw new IOException("unexpected journal header");
+			}
+			int lineCount = 0;
+			String line;
+			while ((line = reader.readLine()) != null) {
+				if (!readJournalLine(line)) {
+					Logs.w(TAG, "ignoring truncated journal line: " + line);
+					return false;
+				}
+				lineCount++;
+			}
+			redundantOpCount = lineCount - entries.size();
+			return true;
+		} finally {
+			reader.close();
+		}
+	}
+
+	private boolean readJournalLine(String line) {
+		int space = line.indexOf(' ');
+		if (space <= 0) {
+			return false;
+		}
+		String op = line.substring(0, space);
+		String rest = line.substring(space + 1);
+		if (REMOVE.equals(op)) {
+			entries.remove(rest);
+		} else if (READ.equals(op)) {
+			entries.get(rest);// 只调整访问顺序
+		} else if (DIRTY.equals(op)) {
+			if (!isValidKey(rest)) {
+				return false;
+			}
+			Entry entry = getOrCreateEntry(rest);
+			entry.currentEditor = new Editor(entry);
+		} else if (CLEAN.equals(op)) {
+			int secondSpace = rest.indexOf(' ');
+			if (secondSpace <= 0) {
+				return false;
+			}
+			String key = rest.substring(0, secondSpace);
+			long length;
+			try {
+				length = Long.parseLong(rest.substring(secondSpace + 1));
+			} catch (NumberFormatException e) {
+				return false;
+			}
+			if (!isValidKey(key) || length < 0) {
+				return false;
+			}
+			Entry entry = getOrCreateEntry(key);
+			entry.readable = true;
+			entry.currentEditor = null;
+			entry.length = length;
+		} else {
+			return false;
+		}
+		return true;
+	}
+
+	private Entry getOrCreateEntry(String key) {
+		Entry entry = entries.get(key);
+		if (entry == null) {
+			entry = new Entry(key);
+			entries.put(key, entry);
+		}
+		return entry;
+	}
+
+	/**
+	 * 统计总大小；删除写入未完成的条目和已经不存在的文件
+	 */
+	private void processJournal() {
+		journalFileTemp.delete();
+		for (Iterator<Entry> i = entries.values().iterator(); i.hasNext();) {
+			Entry entry = i.next();
+			if (entry.currentEditor == null && entry.getCleanFile().isFile()) {
+				size += entry.length;
+			} else {
+				entry.currentEditor = null;
+				entry.getCleanFile().delete();
+				entry.getDirtyFile().delete();
+				i.remove();
+			}
+		}
+	}
+
+	/**
+	 * 根据当前条目重写日志，替换原有日志
+	 */
+	private synchronized void rebuildJournal() throws IOException {
+		if (journalWriter != null) {
+			journalWriter.close();
+		}
+		Writer writer = newJournalWriter(journalFileTemp, false);
+		try {
+			writer.write(MAGIC + "\n" + VERSION + "\n\n");
+			for (Entry entry : entries.values()) {
+				if (entry.currentEditor != null) {
+					writer.write(DIRTY + ' ' + entry.key + '\n');
+				} else {
+					writer.write(CLEAN + ' ' + entry.key + ' ' + entry.length + '\n');
+				}
+			}
+		} finally {
+			writer.close();
+		}
+		if (journalFile.exists()) {
+			renameTo(journalFile, journalFileBackup, true);
+		}
+		renameTo(journalFileTemp, journalFile, false);
+		journalFileBackup.delete();
+		journalWriter = newJournalWriter(journalFile, true);
+		redundantOpCount = 0;
+	}
+
+	private static Writer newJournalWriter(File file, boolean append) throws FileNotFoundException {
+		try {
+			return new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file, append), "US-ASCII"));
+		} catch (UnsupportedEncodingException e) {
+			throw new AssertionError(e);
+		}
+	}
+
+	/**
+	 * 获取缓存文件，不存在时返回null。文件可能在之后被淘汰删除，需要长时间读取时使用{@link #getInputStream(String)}
+	 */
+	public synchronized File get(String key) throws IOException {
+		checkNotClosed();
+		validateKey(key);
+		Entry entry = entries.get(key);
+		if (entry == null || !entry.readable) {
+			return null;
+		}
+		File file = entry.getCleanFile();
+		if (!file.isFile()) {
+			removeEntry(entry);// 被外部删除
+			return null;
+		}
+		redundantOpCount++;
+		journalWriter.append(READ).append(' ').append(key).append('\n');
+		journalWriter.flush();
+		if (journalRebuildRequired()) {
+			rebuildJournal();
+		}
+		return file;
+	}
+
+	/**
+	 * 打开缓存文件的输入流，不存在时返回null。打开后即使条目被淘汰也可以继续读取
+	 */
+	public InputStream getInputStream(String key) throws IOException {
+		File file = get(key);
+		if (file == null) {
+			return null;
+		}
+		try {
+			return new FileInputStream(file);
+		} catch (FileNotFoundException e) {
+			return null;// 刚好被淘汰
+		}
+	}
+
+	/**
+	 * 开始写入条目
+	 *
+	 * @return 编辑器，该键正在被其他编辑器写入时返回null
+	 */
+	public synchronized Editor edit(String key) throws IOException {
+		checkNotClosed();
+		validateKey(key);
+		Entry entry = entries.get(key);
+		if (entry == null) {
+			entry = new Entry(key);
+			entries.put(key, entry);
+		} else if (entry.currentEditor != null) {
+			return null;
+		}
+		Editor editor = new Editor(entry);
+		entry.currentEditor = editor;
+		// 先记录DIRTY，写入中途进程被杀时下次打开能识别并清理
+		journalWriter.append(DIRTY).append(' ').append(key).append('\n');
+		journalWriter.flush();
+		return editor;
+	}
+
+	/**
+	 * 写入一个条目
+	 *
+	 * @return 写入后的缓存文件；该键正在被写入时返回null
+	 */
+	public File put(String key, byte[] data, int offset, int length) throws IOException {
+		Editor editor = edit(key);
+		if (editor == null) {
+			return null;
+		}
+		boolean committed = false;
+		try {
+			OutputStream out = editor.newOutputStream();
+			try {
+				out.write(data, offset, length);
+			} finally {
+				out.close();
+			}
+			committed = editor.commit();
+		} finally {
+			if (!committed) {
+				editor.abort();
+			}
+		}
+		return get(key);
+	}
+
+	private synchronized boolean completeEdit(Editor editor, boolean success) throws IOException {
+		Entry entry = editor.entry;
+		if (entry.currentEditor != editor) {
+			return false;// 已完成或缓存已关闭
+		}
+		File dirty = entry.getDirtyFile();
+		if (success && dirty.isFile()) {
+			File clean = entry.getCleanFile();
+			renameTo(dirty, clean, true);
+			long oldLength = entry.length;
+			entry.length = clean.length();
+			size = size - (entry.readable ? oldLength : 0) + entry.length;
+			entry.readable = true;
+		} else {
+			dirty.delete();
+			success = false;
+		}
+		entry.currentEditor = null;
+		redundantOpCount++;
+		if (entry.readable) {
+			journalWriter.append(CLEAN).append(' ').append(entry.key).append(' ').append(String.valueOf(entry.length))
+					.append('\n');
+		} else {
+			entries.remove(entry.key);
+			journalWriter.append(REMOVE).append(' ').append(entry.key).append('\n');
+		}
+		journalWriter.flush();
+		trimToSize();
+		if (journalRebuildRequired()) {
+			rebuildJournal();
+		}
+		return success;
+	}
+
+	/**
+	 * 删除条目，正在写入的条目不能删除
+	 *
+	 * @return 是否删除
+	 */
+	public synchronized boolean remove(String key) throws IOException {
+		checkNotClosed();
+		validateKey(key);
+		Entry entry = entries.get(key);
+		if (entry == null || entry.currentEditor != null) {
+			return false;
+		}
+		removeEntry(entry);
+		if (journalRebuildRequired()) {
+			rebuildJournal();
+		}
+		return true;
+	}
+
+	private void removeEntry(Entry entry) throws IOException {
+		File file = entry.getCleanFile();
+		if (file.exists() && !file.delete()) {
+			throw new IOException("failed to delete " + file);
+		}
+		if (entry.readable) {
+			size -= entry.length;
+		}
+		redundantOpCount++;
+		journalWriter.append(REMOVE).append(' ').append(entry.key).append('\n');
+		entries.remove(entry.key);
+	}
+
+	/**
+	 * 淘汰最久未访问的条目，直到总大小不超过上限
+	 */
+	private synchronized void trimToSize() throws IOException {
+		if (size <= maxSize) {
+			return;
+		}
+		// 遍历时不能修改LinkedHashMap，先收集再删除
+		ArrayList<Entry> evicted = new ArrayList<Entry>();
+		long remaining = size;
+		for (Entry entry : entries.values()) {
+			if (remaining <= maxSize) {
+				break;
+			}
+			if (entry.currentEditor == null && entry.readable) {
+				evicted.add(entry);
+				remaining -= entry.length;
+			}
+		}
+		for (Entry entry : evicted) {
+			removeEntry(entry);
+		}
+		journalWriter.flush();
+	}
+
+	private boolean journalRebuildRequired() {
+		return redundantOpCount >= REDUNDANT_OP_COMPACT_THRESHOLD && redundantOpCount >= entries.size();
+	}
+
+	public File getDirectory() {
+		return directory;
+	}
+
+	/**
+	 * 当前总字节数
+	 */
+	public synchronized long size() {
+		return size;
+	}
+
+	public synchronized long getMaxSize() {
+		return maxSize;
+	}
+
+	/**
+	 * 修改最大总字节数，变小时立即淘汰
+	 */
+	public synchronized void setMaxSize(long maxSize) throws IOException {
+		this.maxSize = maxSize;
+		if (journalWriter != null) {
+			trimToSize();
+		}
+	}
+
+	public synchronized boolean isClosed() {
+		return journalWriter == null;
+	}
+
+	/**
+	 * 关闭缓存，未完成的写入全部放弃
+	 */
+	@Override
+	public synchronized void close() throws IOException {
+		if (journalWriter == null) {
+			return;
+		}
+		for (Entry entry : new ArrayList<Entry>(entries.values())) {
+			if (entry.currentEditor != null) {
+				entry.currentEditor.abort();
+			}
+		}
+		journalWriter.close();
+		journalWriter = null;
+	}
+
+	/**
+	 * 关闭并删除所有缓存文件
+	 */
+	public void delete() throws IOException {
+		close();
+		deleteContents(directory);
+	}
+
+	private void checkNotClosed() {
+		if (journalWriter == null) {
+			throw new IllegalStateException("cache is closed");
+		}
+	}
+
+	private static boolean isValidKey(String key) {
+		int length = key.length();
+		if (length == 0 || length > MAX_KEY_LENGTH) {
+			return false;
+		}
+		if (JOURNAL_FILE.equals(key)) {
+			return false;// 条目文件及其"键.tmp"会覆盖日志文件和日志临时文件
+		}
+		for (int i = 0; i < length; i++) {
+			char c = key.charAt(i);
+			if (!((c >= 'a' && c <= 'z') || (c >= '0' && c <= '9') || c == '_' || c == '-')) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static void validateKey(String key) {
+		if (!isValidKey(key)) {
+			throw new IllegalArgumentException("keys must match [a-z0-9_-]{1," + MAX_KEY_LENGTH + "} and must not be \""
+					+ JOURNAL_FILE + "\": \"" + key + "\"");
+		}
+	}
+
+	private static void renameTo(File from, File to, boolean deleteDestination) throws IOException {
+		if (deleteDestination && to.exists() && !to.delete()) {
+			throw new IOException("failed to delete " + to);
+		}
+		if (!from.renameTo(to)) {
+			throw new IOException("rename failed: " + from + " -> " + to);
+		}
+	}
+
+	private static void deleteContents(File dir) {
+		File[] files = dir.listFiles();
+		if (files == null) {
+			return;
+		}
+		for (File file : files) {
+			if (file.isDirectory()) {
+				deleteContents(file);
+			}
+			if (!file.delete()) {
+				Logs.w(TAG, "failed to delete " + file);
+			}
+		}
+	}
+
+	/**
+	 * 条目编辑器，完成后必须调用{@link #commit()}或{@link #abort()}其中之一
+	 */
+	public final class Editor {
+		private final Entry entry;
+
+		private Editor(Entry entry) {
+			this.entry = entry;
+		}
+
+		/**
+		 * 写入用的临时文件，提交后重命名为缓存文件
+		 */
+		public File getFile() {
+			return entry.getDirtyFile();
+		}
+
+		public OutputStream newOutputStream() throws FileNotFoundException {
+			return new FileOutputStream(entry.getDirtyFile());
+		}
+
+		/**
+		 * 提交写入的内容(输出流须已关闭)
+		 *
+		 * @return 是否成功提交
+		 */
+		public boolean commit() throws IOException {
+			return completeEdit(this, true);
+		}
+
+		/**
+		 * 放弃写入，已有的旧内容保持不变
+		 */
+		public void abort() throws IOException {
+			completeEdit(this, false);
+		}
+	}
+
+	private final class Entry {
+		final String key;
+		long length;
+		/** 是否已有提交过的内容 */
+		boolean readable;
+		Editor currentEditor;
+
+		Entry(String key) {
+			this.key = key;
+		}
+
+		File getCleanFile() {
+			return new File(directory, key);
+		}
+
+		File getDirtyFile() {
+			return new File(directory, key + TEMP_SUFFIX);
+		}
+	}
+}
@@ -0,0 +1,269 @@
+package com.suwec.framework.utils;
+
+import android.graphics.Bitmap;
+import android.graphics.Bitmap.Config;
+import android.net.Uri;
+import android.util.LruCache;
+
+import java.io.File;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * 已解码位图的内存缓存
+ * <p>
+ * 以(来源路径或Uri, 文件修改时间, 最大像素数, Config)为键(纯色位图以(宽, 高, 颜色, Config)为键)，按位图实际占用字节数计算容量，
+ * 超出容量时按最近最少使用(LRU)淘汰。缓存中的位图由多个调用者共享，取出后不要修改或回收。
+ * </p>
+ */
+public class BitmapMemoryCache {
+
+	/** 键为{@link Key}或{@link SolidColorKey} */
+	private final LruCache<Object, Bitmap> cache;
+	/** 缓存中的位图(按对象identity判断)，防止共享位图被归还到复用池 */
+	private final Set<Bitmap> cachedBitmaps = new HashSet<Bitmap>();
+
+	/**
+	 * @param maxSize
+	 *            缓存容量上限(字节)
+	 */
+	public BitmapMemoryCache(int maxSize) {
+		cache = new LruCache<Object, Bitmap>(maxSize) {
+			@Override
+			protected int sizeOf(Object key, Bitmap value) {
+				return value.getAllocationByteCount();
+			}
+
+			@Override
+			protected void entryRemoved(boolean evicted, Object key, Bitmap oldValue, Bitmap newValue) {
+				synchronized (cachedBitmaps) {
+					cachedBitmaps.remove(oldValue);
+				}
+			}
+		};
+	}
+
+	/**
+	 * 取出缓存的位图
+	 *
+	 * @return 未命中或位图已被回收时返回null
+	 */
+	public Bitmap get(Key key) {
+		return getEntry(key);
+	}
+
+	public void put(Key key, Bitmap bitmap) {
+		putEntry(key, bitmap);
+	}
+
+	Bitmap get(SolidColorKey key) {
+		return getEntry(key);
+	}
+
+	void put(SolidColorKey key, Bitmap bitmap) {
+		putEntry(key, bitmap);
+	}
+
+	private Bitmap getEntry(Object key) {
+		Bitmap bitmap = cache.get(key);
+		if (bitmap != null && bitmap.isRecycled()) {
+			cache.remove(key);// 调用者违规回收了共享位图，丢弃该条目
+			return null;
+		}
+		return bitmap;
+	}
+
+	private void putEntry(Object key, Bitmap bitmap) {
+		if (key == null || bitmap == null || bitmap.isRecycled()) {
+			return;
+		}
+		synchronized (cachedBitmaps) {
+			cachedBitmaps.add(bitmap);
+		}
+		cache.put(key, bitmap);
+	}
+
+	public Bitmap remove(Key key) {
+		return cache.remove(key);
+	}
+
+	/**
+	 * 判断位图是否正被缓存持有
+	 */
+	public boolean contains(Bitmap bitmap) {
+		synchronized (cachedBitmaps) {
+			return cachedBitmaps.contains(bitmap);
+		}
+	}
+
+	/**
+	 * 清空缓存
+	 */
+	public void clear() {
+		cache.evictAll();
+	}
+
+	/**
+	 * 缩减缓存容量至指定字节数
+	 */
+	public void trimToSize(int maxSize) {
+		cache.trimToSize(maxSize);
+	}
+
+	/** 当前占用字节数 */
+	public int size() {
+		return cache.size();
+	}
+
+	/** 容量上限(字节) */
+	public int maxSize() {
+		return cache.maxSize();
+	}
+
+	/** 命中次数 */
+	public int hitCount() {
+		return cache.hitCount();
+	}
+
+	/** 未命中次数 */
+	public int missCount() {
+		return cache.missCount();
+	}
+
+	/** 因超出容量被淘汰的次数 */
+	public int evictionCount() {
+		return cache.evictionCount();
+	}
+
+	@Override
+	public String toString() {
+		return "BitmapMemoryCache[size=" + size() + ",maxSize=" + maxSize() + ",hits=" + hitCount() + ",misses="
+				+ missCount() + ",evictions=" + evictionCount() + "]";
+	}
+
+	/**
+	 * 缓存键
+	 */
+	public static final class Key {
+		final String source;
+		final long lastModified;
+		final long length;
+		final int maxNumOfPixels;
+		final Config config;
+
+		/**
+		 * @param source
+		 *            来源标识(文件路径或Uri字符串)
+		 * @param lastModified
+		 *            来源的修改时间，来源内容变化后旧条目不再命中
+		 * @param maxNumOfPixels
+		 *            解码的最大像素数
+		 * @param config
+		 *            解码使用的Config
+		 */
+		public Key(String source, long lastModified, int maxNumOfPixels, Config config) {
+			this(source, lastModified, -1, maxNumOfPixels, config);
+		}
+
+		/**
+		 * @param length
+		 *            来源的字节数，未知时为-1。与修改时间一起判断来源内容是否变化
+		 * @see #Key(String, long, int, Config)
+		 */
+		public Key(String source, long lastModified, long length, int maxNumOfPixels, Config config) {
+			if (source == null) {
+				throw new IllegalArgumentException("source == null");
+			}
+			this.source = source;
+			this.lastModified = lastModified;
+			this.length = length;
+			this.maxNumOfPixels = maxNumOfPixels;
+			this.config = config;
+		}
+
+		/**
+		 * 根据本地文件生成键，修改时间取自文件本身
+		 */
+		public static Key forFile(String path, int maxNumOfPixels, Config config) {
+			return new Key(path, new File(path).lastModified(), maxNumOfPixels, config);
+		}
+
+		/**
+		 * 根据Uri生成键，修改时间和字节数由调用者提供(字节数未知时传-1)
+		 */
+		public static Key forUri(Uri uri, long lastModified, long length, int maxNumOfPixels, Config config) {
+			return new Key(uri.toString(), lastModified, length, maxNumOfPixels, config);
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) {
+				return true;
+			}
+			if (!(o instanceof Key)) {
+				return false;
+			}
+			Key other = (Key) o;
+			return lastModified == other.lastModified && length == other.length && maxNumOfPixels == other.maxNumOfPixels
+					&& config == other.config && source.equals(other.source);
+		}
+
+		@Override
+		public int hashCode() {
+			int result = source.hashCode();
+			result = 31 * result + (int) (lastModified ^ (lastModified >>> 32));
+			result = 31 * result + (int) (length ^ (length >>> 32));
+			result = 31 * result + maxNumOfPixels;
+			result = 31 * result + (config != null ? config.hashCode() : 0);
+			return result;
+		}
+
+		@Override
+		public String toString() {
+			return source + "@" + lastModified + "/" + length + "#" + maxNumOfPixels + ":" + config;
+		}
+	}
+
+	/**
+	 * 纯色位图的缓存键
+	 */
+	static final class SolidColorKey {
+		final int width;
+		final int height;
+		final int color;
+		final Config config;
+
+		SolidColorKey(int width, int height, int color, Config config) {
+			this.width = width;
+			this.height = height;
+			this.color = color;
+			this.config = config;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) {
+				return true;
+			}
+			if (!(o instanceof SolidColorKey)) {
+				return false;
+			}
+			SolidColorKey other = (SolidColorKey) o;
+			return width == other.width && height == other.height && color == other.color && config == other.config;
+		}
+
+		@Override
+		public int hashCode() {
+			int result = width;
+			result = 31 * result + height;
+			result = 31 * result + color;
+			result = 31 * result + (config != null ? config.hashCode() : 0);
+			return result;
+		}
+
+		@Override
+		public String toString() {
+			return "solid-color:" + width + "x" + height + "#" + Integer.toHexString(color) + ":" + config;
+		}
+	}
+}
@@ -0,0 +1,269 @@
+package com.suwec.framework.utils;
+
+import android.annotation.TargetApi;
+import android.content.ComponentCallbacks2;
+import android.graphics.Bitmap;
+import android.graphics.Bitmap.Config;
+import android.graphics.Color;
+import android.os.Build;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 位图复用池
+ * <p>
+ * 按(占用字节数, Config)对可变位图分组缓存，供BitmapFactory.Options.inBitmap复用。
+ * 总字节数超过容量上限时，按分组最近最少使用(LRU)的顺序淘汰并回收。
+ * </p>
+ */
+public class BitmapPool {
+	private static final String TAG = "BitmapPool";
+	/** 取出的位图最多可以比所需大多少倍，防止用大图承载小图浪费内存 */
+	private static final int MAX_SIZE_MULTIPLE = 8;
+
+	/** 分组，accessOrder=true使迭代顺序即为LRU顺序 */
+	private final LinkedHashMap<Key, ArrayList<Bitmap>> groups = new LinkedHashMap<Key, ArrayList<Bitmap>>(16, 0.75f, true);
+	/** 每种Config下各字节数对应的位图个数，用于查找不小于所需大小的分组 */
+	private final Map<Config, TreeMap<Integer, Integer>> sortedSizes = new HashMap<Config, TreeMap<Integer, Integer>>();
+
+	private long maxSize;
+	private long currentSize;
+
+	/**
+	 * @param maxSize
+	 *            池容量上限(字节)
+	 */
+	public BitmapPool(long maxSize) {
+		this.maxSize = maxSize;
+	}
+
+	/**
+	 * 取出一个可以容纳指定尺寸的位图，并清空为透明
+	 *
+	 * @return 池中没有合适的位图时返回null
+	 */
+	public Bitmap get(int width, int height, Config config) {
+		Bitmap bitmap = getDirty(width, height, config);
+		if (bitmap != null) {
+			bitmap.eraseColor(Color.TRANSPARENT);
+		}
+		return bitmap;
+	}
+
+	/**
+	 * 取出一个可以容纳指定尺寸的位图，像素内容未清空，适合作为inBitmap交给解码器覆盖
+	 *
+	 * @return 池中没有合适的位图时返回null
+	 */
+	public synchronized Bitmap getDirty(int width, int height, Config config) {
+		if (width <= 0 || height <= 0) {
+			return null;
+		}
+		if (config == null) {
+			config = Config.ARGB_8888;
+		}
+		long byteCount = (long) width * height * getBytesPerPixel(config);
+		if (byteCount == 0 || byteCount > Integer.MAX_VALUE) {
+			return null;
+		}
+		int size = (int) byteCount;
+		TreeMap<Integer, Integer> sizes = sortedSizes.get(config);
+		if (sizes == null) {
+			return null;
+		}
+		Integer possibleSize = sizes.ceilingKey(size);
+		if (possibleSize == null || possibleSize > byteCount * MAX_SIZE_MULTIPLE) {
+			return null;
+		}
+		Key key = new Key(possibleSize, config);
+		Bitmap bitmap = removeLast(key);
+		if (bitmap == null) {
+			return null;
+		}
+		decrementSize(sizes, possibleSize);
+		currentSize -= possibleSize;
+		try {
+			bitmap.reconfigure(width, height, config);
+		} catch (IllegalArgumentException e) {
+			Logs.w(TAG, "reconfigure failed: " + e.getMessage());
+			bitmap.recycle();
+			return null;
+		}
+		return bitmap;
+	}
+
+	/**
+	 * 放入一个不再使用的位图
+	 *
+	 * @return 是否被池接收。未被接收的位图由调用者自行处理
+	 */
+	public synchronized boolean put(Bitmap bitmap) {
+		if (bitmap == null || bitmap.isRecycled() || !bitmap.isMutable()) {
+			return false;
+		}
+		Config config = bitmap.getConfig();
+		if (config == null || getBytesPerPixel(config) == 0) {
+			return false;
+		}
+		int size = bitmap.getAllocationByteCount();
+		if (size > maxSize) {
+			return false;
+		}
+		Key key = new Key(size, config);
+		ArrayList<Bitmap> group = groups.get(key);
+		if (group == null) {
+			group = new ArrayList<Bitmap>();
+			groups.put(key, group);
+		}
+		group.add(bitmap);
+		TreeMap<Integer, Integer> sizes = sortedSizes.get(config);
+		if (sizes == null) {
+			sizes = new TreeMap<Integer, Integer>();
+			sortedSizes.put(config, sizes);
+		}
+		Integer count = sizes.get(size);
+		sizes.put(size, count == null ? 1 : count + 1);
+		currentSize += size;
+		trimToSize(maxSize);
+		return true;
+	}
+
+	/**
+	 * 调整池容量上限，超出部分立即淘汰
+	 */
+	public synchronized void setMaxSize(long maxSize) {
+		this.maxSize = maxSize;
+		trimToSize(maxSize);
+	}
+
+	public synchronized long getMaxSize() {
+		return maxSize;
+	}
+
+	/**
+	 * 当前池中位图占用的总字节数
+	 */
+	public synchronized long getCurrentSize() {
+		return currentSize;
+	}
+
+	/**
+	 * 清空并回收池中所有位图
+	 */
+	public synchronized void clear() {
+		trimToSize(0);
+	}
+
+	/**
+	 * 响应系统内存紧张回调(ComponentCallbacks2.onTrimMemory)
+	 */
+	public synchronized void trimMemory(int level) {
+		if (level >= ComponentCallbacks2.TRIM_MEMORY_BACKGROUND) {
+			clear();
+		} else if (level >= ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN
+				|| level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL) {
+			trimToSize(maxSize / 2);
+		}
+	}
+
+	private void trimToSize(long size) {
+		Iterator<Map.Entry<Key, ArrayList<Bitmap>>> iterator = groups.entrySet().iterator();
+		while (currentSize > size && iterator.hasNext()) {
+			Map.Entry<Key, ArrayList<Bitmap>> entry = iterator.next();
+			Key key = entry.getKey();
+			ArrayList<Bitmap> group = entry.getValue();
+			while (currentSize > size && !group.isEmpty()) {
+				Bitmap removed = group.remove(group.size() - 1);
+				decrementSize(sortedSizes.get(key.config), key.size);
+				currentSize -= key.size;
+				removed.recycle();
+			}
+			if (group.isEmpty()) {
+				iterator.remove();
+			}
+		}
+	}
+
+	private Bitmap removeLast(Key key) {
+		ArrayList<Bitmap> group = groups.get(key);
+		if (group == null || group.isEmpty()) {
+			return null;
+		}
+		Bitmap bitmap = group.remove(group.size() - 1);
+		if (group.isEmpty()) {
+			groups.remove(key);
+		}
+		return bitmap;
+	}
+
+	private static void decrementSize(TreeMap<Integer, Integer> sizes, int size) {
+		Integer count = sizes.get(size);
+		if (count == null) {
+			return;
+		}
+		if (count == 1) {
+			sizes.remove(size);
+		} else {
+			sizes.put(size, count - 1);
+		}
+	}
+
+	/**
+	 * 每个像素占用的字节数，不支持复用的Config返回0
+	 */
+	static int getBytesPerPixel(Config config) {
+		if (config == null) {
+			return 4;
+		}
+		switch (config) {
+		case ALPHA_8:
+			return 1;
+		case RGB_565:
+		case ARGB_4444:
+			return 2;
+		case ARGB_8888:
+			return 4;
+		default:
+			// RGBA_F16是API 26新增的，不能写在case里；HARDWARE位图不能作为inBitmap
+			return isRgbaF16(config) ? 8 : 0;
+		}
+	}
+
+	private static boolean isRgbaF16(Config config) {
+		return Build.VERSION.SDK_INT >= Build.VERSION_CODES.O && config == rgbaF16Config();
+	}
+
+	@TargetApi(Build.VERSION_CODES.O)
+	private static Config rgbaF16Config() {
+		return Config.RGBA_F16;
+	}
+
+	private static final class Key {
+		final int size;
+		final Config config;
+
+		Key(int size, Config config) {
+			this.size = size;
+			this.config = config;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (!(o instanceof Key)) {
+				return false;
+			}
+			Key other = (Key) o;
+			return size == other.size && config == other.config;
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * size + config.hashCode();
+		}
+	}
+}
@@ -2,34 +2,43 @@ package com.suwec.framework.utils;
 
 import android.annotation.SuppressLint;
 import android.app.Activity;
+import android.content.ContentResolver;
 import android.content.ContentUris;
 import android.content.Context;
 import android.content.Intent;
+import android.content.res.AssetFileDescriptor;
+import android.content.res.Resources;
 import android.database.Cursor;
 import android.graphics.Bitmap;
 import android.graphics.Bitmap.Config;
 import android.graphics.BitmapFactory;
 import android.graphics.Canvas;
 import android.graphics.Matrix;
-import android.graphics.Paint;
-import android.graphics.PorterDuff.Mode;
-import android.graphics.PorterDuffXfermode;
-import android.graphics.Rect;
-import android.graphics.RectF;
+import android.graphics.drawable.ColorDrawable;
+import android.graphics.drawable.Drawable;
+import android.media.ExifInterface;
 import android.net.Uri;
 import android.os.Build;
 import android.os.Environment;
 import android.provider.DocumentsContract;
 import android.provider.MediaStore;
-import android.util.Base64;
+import android.provider.OpenableColumns;
+import android.system.ErrnoException;
+import android.system.Os;
+import android.system.OsConstants;
+import android.util.LruCache;
 import android.view.View;
 
 import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
+import java.io.FileDescriptor;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * @Description 位图处理工具(包含将原图转换为圆角图，与base64之间的相互转换，位图质量压缩，图片的截取，图片的保存)
@@ -66,36 +75,394 @@ public class BitmapUtil {
 
 	/***************** 单例模式 *****************/
 
+	/***************** 位图复用 *****************/
+	/**
+	 * @Description 解码时共用的位图复用池，默认容量为应用最大可用内存的1/8
+	 */
+	private static BitmapPool sBitmapPool = new BitmapPool(Runtime.getRuntime().maxMemory() / 8);
+
+	/**
+	 * @Description 已解码位图的内存缓存，默认容量为应用最大可用内存的1/8
+	 */
+	private static BitmapMemoryCache sMemoryCache = new BitmapMemoryCache((int) (Runtime.getRuntime().maxMemory() / 8));
+
+	/**
+	 * @Description 获取已解码位图的内存缓存(可读取命中/未命中/淘汰次数)
+	 */
+	public static BitmapMemoryCache getMemoryCache() {
+		return sMemoryCache;
+	}
+
+	/**
+	 * @Description 替换已解码位图的内存缓存(例如按业务调整容量)
+	 */
+	public static void setMemoryCache(BitmapMemoryCache cache) {
+		if (cache == null) {
+			throw new IllegalArgumentException("cache == null");
+		}
+		sMemoryCache.clear();
+		sMemoryCache = cache;
+	}
+
+	/**
+	 * @Description 获取解码时使用的位图复用池
+	 */
+	public static BitmapPool getBitmapPool() {
+		return sBitmapPool;
+	}
+
+	/**
+	 * @Description 替换解码时使用的位图复用池(例如按业务调整容量)
+	 */
+	public static void setBitmapPool(BitmapPool pool) {
+		if (pool == null) {
+			throw new IllegalArgumentException("pool == null");
+		}
+		sBitmapPool = pool;
+	}
+
+	/**
+	 * @Description 归还不再使用的位图，供后续解码复用。池不接收时直接回收。
+	 *              调用后不得再使用该位图。仍被内存缓存共享的位图会被忽略
+	 * @param bitmap
+	 *            不再使用的位图
+	 */
+	public static void release(Bitmap bitmap) {
+		if (bitmap == null || bitmap.isRecycled() || sMemoryCache.contains(bitmap)) {
+			return;
+		}
+		if (!sBitmapPool.put(bitmap)) {
+			bitmap.recycle();
+		}
+	}
+
+	/**
+	 * 根据已读取的边界和采样率，从复用池中取出位图设置为inBitmap
+	 */
+	private static void setInBitmap(BitmapFactory.Options options) {
+		if (BitmapConfigPolicy.isHardware(options.inPreferredConfig)) {
+			return;// HARDWARE位图不能复用
+		}
+		int sampleSize = Math.max(1, options.inSampleSize);
+		// 不同解码器对采样后的尺寸取整方式不同，这里按向上取整申请，保证容量足够
+		int width = (options.outWidth + sampleSize - 1) / sampleSize;
+		int height = (options.outHeight + sampleSize - 1) / sampleSize;
+		if (isDensityScaled(options)) {// 解码时还会按密度缩放
+			float scale = (float) options.inTargetDensity / options.inDensity;
+			width = (int) (width * scale + 0.5f);
+			height = (int) (height * scale + 0.5f);
+		}
+		options.inMutable = true;
+		options.inBitmap = sBitmapPool.getDirty(width, height, options.inPreferredConfig);
+	}
+
+	/**
+	 * 解码数据来源(文件、字节数组、base64等)，同一来源可以多次解码(先读尺寸再解码)
+	 */
+	private interface DecodeSource {
+		Bitmap decode(BitmapFactory.Options options);
+	}
+
+	private static DecodeSource fileSource(final String path) {
+		return new DecodeSource() {
+			@Override
+			public Bitmap decode(BitmapFactory.Options options) {
+				return BitmapFactory.decodeFile(path, options);
+			}
+		};
+	}
+
+	private static DecodeSource byteArraySource(final byte[] data, final int offset, final int length) {
+		return new DecodeSource() {
+			@Override
+			public Bitmap decode(BitmapFactory.Options options) {
+				return BitmapFactory.decodeByteArray(data, offset, length, options);
+			}
+		};
+	}
+
+	/**
+	 * 文件描述符来源。decodeFileDescriptor对可定位的描述符解码后会恢复读取位置，可以多次解码
+	 */
+	private static DecodeSource fileDescriptorSource(final FileDescriptor fd) {
+		return new DecodeSource() {
+			@Override
+			public Bitmap decode(BitmapFactory.Options options) {
+				return BitmapFactory.decodeFileDescriptor(fd, null, options);
+			}
+		};
+	}
+
+	private static DecodeSource base64Source(final CharSequence base64Data) {
+		return new DecodeSource() {
+			@Override
+			public Bitmap decode(BitmapFactory.Options options) {
+				return decodeBase64Stream(base64Data, options);
+			}
+		};
+	}
+
+	/**
+	 * 只读取原图尺寸
+	 *
+	 * @return 是否是可以解码的图片
+	 */
+	private static boolean decodeBounds(DecodeSource source, BitmapFactory.Options options) {
+		options.inJustDecodeBounds = true;
+		source.decode(options);
+		options.inJustDecodeBounds = false;
+		return options.outWidth > 0 && options.outHeight > 0;
+	}
+
+	/**
+	 * 使用复用池解码，复用失败时退回普通解码。调用前options中须已读取原图尺寸。
+	 * decodeFile等方法会自己捕获复用失败的异常并返回null，所以设置了inBitmap时解码结果为null也要重试
+	 */
+	private static Bitmap decodeWithPool(DecodeSource source, BitmapFactory.Options options) {
+		setInBitmap(options);
+		Bitmap candidate = options.inBitmap;
+		Bitmap bitmap;
+		try {
+			bitmap = source.decode(options);
+		} catch (IllegalArgumentException e) {
+			Logs.w(TAG, "inBitmap reuse failed: " + e.getMessage());
+			bitmap = null;
+		}
+		if (bitmap == null && candidate != null) {
+			options.inBitmap = null;
+			bitmap = source.decode(options);
+		}
+		recycleUnusedCandidate(candidate, bitmap);
+		resetDensity(bitmap, options);
+		return bitmap;
+	}
+
+	/**
+	 * 解码未使用从池中取出的位图时(解码失败或复用失败)，将其放回池中
+	 */
+	private static void recycleUnusedCandidate(Bitmap candidate, Bitmap result) {
+		if (candidate != null && candidate != result) {
+			release(candidate);
+		}
+	}
+
+	/**
+	 * 是否借助inDensity/inTargetDensity在解码时直接缩放
+	 */
+	private static boolean isDensityScaled(BitmapFactory.Options options) {
+		return options.inScaled && options.inDensity > 0 && options.inTargetDensity > 0
+				&& options.inDensity != options.inTargetDensity;
+	}
+
+	/**
+	 * 借助密度缩放解码后，位图的密度被设为inTargetDensity，这里恢复为系统默认密度，
+	 * 避免显示时再次按密度缩放
+	 */
+	private static void resetDensity(Bitmap bitmap, BitmapFactory.Options options) {
+		if (bitmap != null && isDensityScaled(options)) {
+			bitmap.setDensity(Resources.getSystem().getDisplayMetrics().densityDpi);
+		}
+	}
+
+	/**
+	 * 计算采样率和密度缩放参数，使解码结果按缩放模式等比例缩放，作为基准的一边恰好等于目标。
+	 * 先取不超过缩放比例的最大的2的幂作为采样率，由解码器快速缩小；再读取一次采样后的实际尺寸，
+	 * 剩余的缩放交给密度缩放，在同一次解码中完成。调用前options中须已读取原图尺寸
+	 *
+	 * @param reqWidth
+	 *            目标宽度，小于等于0表示宽度不限
+	 * @param reqHeight
+	 *            目标高度，小于等于0表示高度不限
+	 * @param allowUpscale
+	 *            原图小于目标时是否放大
+	 */
+	private static void setTargetSize(DecodeSource source, BitmapFactory.Options options, int reqWidth, int reqHeight,
+			ScaleMode scaleMode, boolean allowUpscale) {
+		int width = options.outWidth;
+		int height = options.outHeight;
+		options.inSampleSize = 1;
+		options.inScaled = false;
+		if (width <= 0 || height <= 0 || (reqWidth <= 0 && reqHeight <= 0)) {
+			return;
+		}
+		// 以哪一边为基准：FIT取缩放比例较小的一边，FILL/CENTER_CROP取缩放比例较大的一边
+		boolean byWidth;
+		if (reqHeight <= 0) {
+			byWidth = true;
+		} else if (reqWidth <= 0) {
+			byWidth = false;
+		} else {
+			boolean widthRatioSmaller = (long) reqWidth * height <= (long) reqHeight * width;
+			byWidth = scaleMode == ScaleMode.FIT ? widthRatioSmaller : !widthRatioSmaller;
+		}
+		int srcSide = byWidth ? width : height;
+		int reqSide = byWidth ? reqWidth : reqHeight;
+		if (srcSide == reqSide || (srcSide < reqSide && !allowUpscale)) {
+			return;
+		}
+		while (srcSide / (options.inSampleSize * 2) >= reqSide) {
+			options.inSampleSize *= 2;
+		}
+		int sampledSide = srcSide;
+		if (options.inSampleSize > 1) {
+			// 不同系统版本和解码器对采样后的尺寸取整方式不同，读取一次实际尺寸(只解析文件头)，保证结果精确
+			options.inJustDecodeBounds = true;
+			source.decode(options);
+			options.inJustDecodeBounds = false;
+			int measured = byWidth ? options.outWidth : options.outHeight;
+			sampledSide = measured > 0 ? measured : srcSide / options.inSampleSize;
+			// 复用池按原图尺寸和采样率计算所需容量
+			options.outWidth = width;
+			options.outHeight = height;
+		}
+		if (sampledSide != reqSide) {
+			options.inScaled = true;
+			options.inDensity = sampledSide;
+			options.inTargetDensity = reqSide;
+		}
+	}
+
+	/**
+	 * 居中裁剪为指定尺寸，尺寸不变时直接返回原图，否则原图归还复用池
+	 */
+	private static Bitmap cropCenter(Bitmap bitmap, int width, int height) {
+		if (bitmap == null) {
+			return null;
+		}
+		int srcWidth = bitmap.getWidth();
+		int srcHeight = bitmap.getHeight();
+		width = width > 0 ? Math.min(width, srcWidth) : srcWidth;
+		height = height > 0 ? Math.min(height, srcHeight) : srcHeight;
+		if (width == srcWidth && height == srcHeight) {
+			return bitmap;
+		}
+		Bitmap cropped = Bitmap.createBitmap(bitmap, (srcWidth - width) / 2, (srcHeight - height) / 2, width, height);
+		if (cropped != bitmap) {
+			release(bitmap);
+		}
+		return cropped;
+	}
+
+	/***************** 位图复用 *****************/
+
+	/***************** 指定尺寸解码 *****************/
+	/**
+	 * @Description 指定尺寸解码时的缩放模式
+	 */
+	public enum ScaleMode {
+		/** 等比例缩放至完全放入目标框内，一边等于目标，另一边不大于目标 */
+		FIT,
+		/** 等比例缩放至完全覆盖目标框，一边等于目标，另一边不小于目标 */
+		FILL,
+		/** 按FILL解码后居中裁剪，结果恰好等于目标宽高 */
+		CENTER_CROP
+	}
+
+	/**
+	 * @Description 将图片文件直接解码为指定尺寸。采样率和密度缩放在同一次解码中完成，
+	 *              不会先解码出原图再缩放，也不会分配第二个全尺寸位图
+	 * @param path
+	 *            图片路径
+	 * @param reqWidth
+	 *            目标宽度(像素)，小于等于0表示宽度不限，只按高度缩放
+	 * @param reqHeight
+	 *            目标高度(像素)，小于等于0表示高度不限，只按宽度缩放
+	 * @param scaleMode
+	 *            缩放模式
+	 * @return Bitmap 解码结果(原图小于目标时放大)，解码失败返回null
+	 */
+	public static Bitmap decodeToSize(String path, int reqWidth, int reqHeight, ScaleMode scaleMode) {
+		return decodeToSize(path, reqWidth, reqHeight, scaleMode, BitmapConfigPolicy.ColorMode.FULL, false);
+	}
+
+	/**
+	 * @Description 将图片文件直接解码为指定尺寸，并由{@link BitmapConfigPolicy}选择Config
+	 * @param colorMode
+	 *            允许的颜色精度，允许时不透明的JPEG使用RGB_565
+	 * @param displayOnly
+	 *            是否只用于显示，为true时API 26+使用HARDWARE位图(CENTER_CROP需要裁剪，不使用HARDWARE)
+	 * @see #decodeToSize(String, int, int, ScaleMode)
+	 */
+	public static Bitmap decodeToSize(String path, int reqWidth, int reqHeight, ScaleMode scaleMode,
+			BitmapConfigPolicy.ColorMode colorMode, boolean displayOnly) {
+		if (path == null) {
+			return null;
+		}
+		return decodeToSize(fileSource(path), reqWidth, reqHeight, scaleMode, colorMode, displayOnly);
+	}
+
+	/**
+	 * @Description 将图片数据直接解码为指定尺寸，参数含义同{@link #decodeToSize(String, int, int, ScaleMode)}
+	 */
+	public static Bitmap decodeToSize(byte[] data, int reqWidth, int reqHeight, ScaleMode scaleMode) {
+		if (data == null) {
+			return null;
+		}
+		return decodeToSize(byteArraySource(data, 0, data.length), reqWidth, reqHeight, scaleMode,
+				BitmapConfigPolicy.ColorMode.FULL, false);
+	}
+
+	private static Bitmap decodeToSize(DecodeSource source, int reqWidth, int reqHeight, ScaleMode scaleMode,
+			BitmapConfigPolicy.ColorMode colorMode, boolean displayOnly) {
+		BitmapFactory.Options options = new BitmapFactory.Options();
+		if (!decodeBounds(source, options)) {
+			return null;
+		}
+		return decodeToSize(source, options, reqWidth, reqHeight, scaleMode, colorMode, displayOnly);
+	}
+
+	/**
+	 * 按已读取原图尺寸的options解码为指定尺寸
+	 */
+	private static Bitmap decodeToSize(DecodeSource source, BitmapFactory.Options options, int reqWidth, int reqHeight,
+			ScaleMode scaleMode, BitmapConfigPolicy.ColorMode colorMode, boolean displayOnly) {
+		setTargetSize(source, options, reqWidth, reqHeight, scaleMode, true);
+		BitmapConfigPolicy.apply(options, colorMode, displayOnly && scaleMode != ScaleMode.CENTER_CROP);
+		Bitmap bitmap = decodeWithPool(source, options);
+		if (scaleMode == ScaleMode.CENTER_CROP) {
+			bitmap = cropCenter(bitmap, reqWidth, reqHeight);
+		}
+		return bitmap;
+	}
+
+	/***************** 指定尺寸解码 *****************/
+
 	/**
 	 * @Description 将图片转换为圆角图片
 	 * @param bitmap
 	 *            需要被转换为圆角图片的原位图资源
 	 * @param radius
 	 *            该圆角图片的半径。圆角直径和图片边长的比例。radius=1表示圆形
-	 * @return Bitmap 返回转换后的圆角图片。
+	 * @return Bitmap 返回转换后的圆角图片，总是新的位图。
 	 * @date 2015年6月6日 上午10:09:26
 	 */
 	public static Bitmap getRoundedCornerBitmap(Bitmap bitmap, float radius) {
-		// 通过接收到位图来创建一个新的位图(接收的位图的尺寸，和属性)
-		Bitmap output = Bitmap.createBitmap(bitmap.getWidth(), bitmap.getHeight(), Config.ARGB_8888);
-		Canvas canvas = new Canvas(output);// 通过新创建的位图来创建一个画布
-		final int color = 0xff424242;// 定义一个颜色值
-		final Paint paint = new Paint();// 定义一个画笔
-		final Rect rect = new Rect(0, 0, bitmap.getWidth(), bitmap.getHeight());// 创建一个矩形
-		final RectF rectF = new RectF(rect);// 创建精度更高的矩形
-		final float roundPx = bitmap.getWidth() / 2;// 图像的宽度除以二当做圆角图形的半径
-
-		paint.setAntiAlias(true);// 设置抗锯齿
-		canvas.drawARGB(0, 0, 0, 0);// 相当于清屏
-		paint.setColor(color);// 设置画笔颜色
-		canvas.drawRoundRect(rectF, roundPx, roundPx, paint);// 绘制圆角矩形(矩形对象,X轴的半径,Y轴的半径,画笔)
-		// canvas原有的图片可以理解为背景，就是dst；
-		// 新画上去的图片可以理解为前景，就是src。
-		paint.setXfermode(new PorterDuffXfermode(Mode.SRC_IN));// 设置两张图片相交时的模式
-		canvas.drawBitmap(bitmap, rect, rect, paint);// 绘制图片(将要绘制出来的位图,前景图可为空,背景图,画笔)
-		return output;// 返回最终的位图(画布上的图)
+		// 通过BitmapShader一次绘制完成，圆角半径 = radius * 较短边长 / 2；输出位图取自复用池，原图保持不变。
+		// 只用于显示时可改用RoundedDrawable，绘制时直接裁剪，不需要生成新的位图
+		Bitmap rounded = new Transformation().roundCornersRatio(radius).apply(bitmap, false);
+		if (rounded == bitmap && bitmap != null) {
+			// radius<=0时没有变换，仍返回新位图，调用者可以安全回收原图
+			rounded = copyOf(bitmap);
+		}
+		return rounded;
+	}
+
+	/**
+	 * @Description 复制为可修改的新位图，HARDWARE或未知Config的按ARGB_8888复制
+	 */
+	private static Bitmap copyOf(Bitmap bm) {
+		Config config = bm.getConfig();
+		if (config == null || BitmapConfigPolicy.isHardware(config)) {
+			config = Config.ARGB_8888;
+		}
+		return bm.copy(config, true);
 	}
 
+	/**
+	 * @Description 流式base64编码时使用的缓冲区大小
+	 */
+	private static final int BASE64_STREAM_BUFFER_SIZE = 8 * 1024;
+
 	/**
 	 * @Description 将bitmap转为base64
 	 * @param bitmap
@@ -104,32 +471,77 @@ public class BitmapUtil {
 	 * @date 2015年6月6日 下午2:34:40
 	 */
 	public static String bitmapToBase64(Bitmap bitmap) {
-
-		String result = null;// 定义一个结果字符串(用于存储最后的结果)
-		ByteArrayOutputStream baos = null;// 定义一个字节数组输出流
+		if (bitmap == null) {// 如果接收到的图片不存在
+			return null;
+		}
+		// 按像素数粗略估计结果长度，减少扩容次数
+		long estimated = (long) bitmap.getWidth() * bitmap.getHeight() / 2;
+		StringWriter writer = new StringWriter((int) Math.max(BASE64_STREAM_BUFFER_SIZE, Math.min(estimated, 1024 * 1024)));
 		try {
-			if (bitmap != null) {// 如果接收到的图片存在
-				baos = new ByteArrayOutputStream();// 实例化字节数组输出流对象
-				bitmap.compress(Bitmap.CompressFormat.JPEG, 100, baos);// 将图片以JPEG格式，不进行任何压缩，将其读到流中
+			// 将图片以JPEG格式，不进行任何压缩，直接编码写入字符串(不换行，不再需要replace("\n", ""))
+			bitmapToBase64(bitmap, Bitmap.CompressFormat.JPEG, 100, false, writer);
+		} catch (IOException e) {
+			e.printStackTrace();
+			return null;
+		}
+		return writer.toString();// 将转换后的base64字符串返回
+	}
+
+	/**
+	 * @Description 将bitmap压缩并以base64(不换行)编码，边压缩边写入调用者提供的输出流，
+	 *              不在内存中保留完整的压缩数据或编码结果。方法返回后不会关闭out
+	 * @param bitmap
+	 *            所需要转换的bitmap
+	 * @param format
+	 *            压缩格式
+	 * @param quality
+	 *            压缩质量(0-100)
+	 * @param urlSafe
+	 *            是否使用URL安全字符集('-'和'_'代替'+'和'/')
+	 * @param out
+	 *            写入目标，例如HTTP请求体或文件
+	 * @throws IOException
+	 *             写入失败
+	 */
+	public static void bitmapToBase64(Bitmap bitmap, Bitmap.CompressFormat format, int quality, boolean urlSafe,
+			OutputStream out) throws IOException {
+		compressToBase64(bitmap, format, quality, new Base64Codec.EncoderOutputStream(out, base64Flags(urlSafe)));
+	}
+
+	/**
+	 * @Description 将bitmap压缩并以base64(不换行)编码，边压缩边写入调用者提供的Writer。方法返回后不会关闭out
+	 * @param bitmap
+	 *            所需要转换的bitmap
+	 * @param format
+	 *            压缩格式
+	 * @param quality
+	 *            压缩质量(0-100)
+	 * @param urlSafe
+	 *            是否使用URL安全字符集
+	 * @param out
+	 *            写入目标
+	 * @throws IOException
+	 *             写入失败
+	 */
+	public static void bitmapToBase64(Bitmap bitmap, Bitmap.CompressFormat format, int quality, boolean urlSafe,
+			Writer out) throws IOException {
+		// 编码结果直接按字符写入Writer，不再经过字节到字符的转换流
+		compressToBase64(bitmap, format, quality, new Base64Codec.EncoderOutputStream(out, base64Flags(urlSafe)));
+	}
 
-				baos.flush();// 刷新流
+	private static int base64Flags(boolean urlSafe) {
+		return Base64Codec.NO_WRAP | (urlSafe ? Base64Codec.URL_SAFE : 0);
+	}
 
-				byte[] bitmapBytes = baos.toByteArray();// 将存有数据的字节数组流转换为字节数组
-				result = Base64.encodeToString(bitmapBytes, Base64.DEFAULT).replace("\n", "");// 将字节数组以字符串的形式存储起来
+	private static void compressToBase64(Bitmap bitmap, Bitmap.CompressFormat format, int quality,
+			Base64Codec.EncoderOutputStream base64) throws IOException {
+		try {
+			if (!bitmap.compress(format, quality, base64)) {
+				throw new IOException("bitmap compress failed");
 			}
-		} catch (IOException e) {
-			e.printStackTrace();
 		} finally {
-			try {
-				if (baos != null) {// 如果流存在
-					baos.flush();// 刷新流
-					baos.close();// 关闭流
-				}
-			} catch (IOException e) {
-				e.printStackTrace();
-			}
+			base64.finish();// 写出末尾不足3字节的部分及填充，不关闭out
 		}
-		return result;// 将转换后的base64字符串返回
 	}
 
 	/**
@@ -138,31 +550,80 @@ public class BitmapUtil {
 	 * @param width
 	 * @param height
 	 * @param color
-	 * @return
+	 * @return 由调用者持有的位图，不再使用时可调用{@link #release(Bitmap)}归还复用池
 	 */
 	public static Bitmap createBitmapByColor(int width,int height,int color){
-		int[] colors = new int[width*height];
-		for (int i = 0; i < colors.length; i++) {
-			colors[i] = color;
+		// 优先从复用池取位图，由eraseColor在native层直接填充，不再创建整幅像素的int[]
+		Bitmap resource = sBitmapPool.getDirty(width, height, Config.ARGB_8888);
+		if (resource == null) {
+			resource = Bitmap.createBitmap(width, height, Config.ARGB_8888);
 		}
-		Bitmap resource = Bitmap.createBitmap(colors, width, height, Config.ARGB_8888);
+		resource.eraseColor(color);
 		return resource;
 	}
 
+	/**
+	 * @Description 获取共享的纯色位图，相同尺寸和颜色的请求返回同一个不可修改的位图，适合作为重复使用的占位图。
+	 *              位图保存在内存缓存中，不要回收
+	 * @param width
+	 *            宽度
+	 * @param height
+	 *            高度
+	 * @param color
+	 *            颜色(ARGB)
+	 * @return Bitmap 共享的纯色位图
+	 */
+	public static Bitmap getSolidColorBitmap(int width, int height, int color) {
+		BitmapMemoryCache.SolidColorKey key = new BitmapMemoryCache.SolidColorKey(width, height, color,
+				Config.ARGB_8888);
+		Bitmap bitmap = sMemoryCache.get(key);
+		if (bitmap != null) {
+			return bitmap;
+		}
+		// eraseColor在native层填充，再复制为不可修改的位图共享，填充用的可变位图归还复用池
+		Bitmap filled = createBitmapByColor(width, height, color);
+		bitmap = filled.copy(Config.ARGB_8888, false);
+		release(filled);
+		if (bitmap == null) {
+			return null;
+		}
+		sMemoryCache.put(key, bitmap);
+		return bitmap;
+	}
+
+	/**
+	 * @Description 创建带固有尺寸的纯色Drawable，绘制时直接填充颜色，不需要任何位图，可代替纯色占位图
+	 * @param width
+	 *            固有宽度
+	 * @param height
+	 *            固有高度
+	 * @param color
+	 *            颜色(ARGB)
+	 * @return Drawable 纯色Drawable
+	 */
+	public static Drawable createColorDrawable(final int width, final int height, int color) {
+		return new ColorDrawable(color) {
+			@Override
+			public int getIntrinsicWidth() {
+				return width;
+			}
+
+			@Override
+			public int getIntrinsicHeight() {
+				return height;
+			}
+		};
+	}
+
 	public static String bitmapTranBase64(Bitmap bitmap,int quality){
 		// 要返回的字符串
 		String reslut = null;
-		ByteArrayOutputStream baos = null;
 		try {
 			if (bitmap != null) {
-				baos = new ByteArrayOutputStream();
-				bitmap.compress(Bitmap.CompressFormat.JPEG, quality, baos);
-				baos.flush();
-				baos.close();
-				// 转换为字节数组
-				byte[] byteArray = baos.toByteArray();
-				// 转换为字符串
-				reslut = new String(new org.apache.commons.codec.binary.Base64().encode(byteArray));
+				// 边压缩边编码为字符串(标准字符集、不换行，与原commons-codec的结果相同)，不生成中间字节数组
+				StringWriter writer = new StringWriter(BASE64_STREAM_BUFFER_SIZE);
+				bitmapToBase64(bitmap, Bitmap.CompressFormat.JPEG, quality, false, writer);
+				reslut = writer.toString();
 				return reslut;
 			} else {
 				return null;
@@ -170,12 +631,6 @@ public class BitmapUtil {
 		} catch (IOException e) {
 			return null;
 		} finally {
-			try {
-				if (baos != null) {
-					baos.close();
-				}
-			} catch (IOException e) {
-			}
 			if (bitmap != null && !bitmap.isRecycled()) {
 				bitmap.recycle(); // 回收图片所占的内存
 				bitmap = null;
@@ -197,8 +652,51 @@ public class BitmapUtil {
 	 * @date 2015年6月6日 下午2:36:08
 	 */
 	public static Bitmap base64ToBitmap(String base64Data) {
-		byte[] bytes = Base64.decode(base64Data, Base64.DEFAULT);// 将接收的字符串以base64的形式解码为字节数组
-		return BitmapFactory.decodeByteArray(bytes, 0, bytes.length);// 将字节数组转换为位图，然后返回该位图
+		// 将接收的字符串解码到线程复用的缓冲区，不为每次调用分配字节数组
+		byte[] bytes = Base64Codec.obtainByteBuffer(Base64Codec.maxDecodedLength(base64Data.length()));
+		int length = Base64Codec.decode(base64Data, 0, base64Data.length(), bytes, 0);
+		DecodeSource source = byteArraySource(bytes, 0, length);
+		BitmapFactory.Options options = new BitmapFactory.Options();
+		decodeBounds(source, options);// 先读取尺寸，以便从复用池中取出合适的位图
+		return decodeWithPool(source, options);// 将字节数组转换为位图，然后返回该位图
+	}
+
+	/**
+	 * @Description 将base64形式的字符串直接解码为显示尺寸的bitmap。
+	 *              边读取边解码base64，不生成完整的字节数组；先读取图片尺寸，
+	 *              再用采样率和密度缩放在一次解码中得到目标尺寸，不会先解码出原图
+	 * @param base64Data
+	 *            base64数据，可以是String、StringBuilder等任意CharSequence
+	 * @param reqWidth
+	 *            目标宽度(像素)
+	 * @param reqHeight
+	 *            目标高度(像素)
+	 * @return Bitmap 宽高都不小于目标宽高的最小等比例图片(原图更小时保持原尺寸)，解码失败返回null
+	 */
+	public static Bitmap base64ToBitmap(CharSequence base64Data, int reqWidth, int reqHeight) {
+		if (base64Data == null) {
+			return null;
+		}
+		DecodeSource source = base64Source(base64Data);
+		BitmapFactory.Options options = new BitmapFactory.Options();
+		if (!decodeBounds(source, options)) {
+			return null;
+		}
+		setTargetSize(source, options, reqWidth, reqHeight, ScaleMode.FILL, false);
+		return decodeWithPool(source, options);
+	}
+
+	private static Bitmap decodeBase64Stream(CharSequence base64Data, BitmapFactory.Options options) {
+		InputStream in = new Base64Codec.DecoderInputStream(base64Data);
+		try {
+			return BitmapFactory.decodeStream(in, null, options);
+		} finally {
+			try {
+				in.close();
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
 	}
 
 	/**
@@ -258,25 +756,43 @@ public class BitmapUtil {
 	 * @date 2015年6月6日 下午3:31:27
 	 */
 	public static boolean saveBitmapToFile(String path, Bitmap image) {
+		return saveBitmapToFile(path, image, Bitmap.CompressFormat.JPEG, 100, false);
+	}
+
+	/**
+	 * @Description 将图片存储到文件。先写入同目录的临时文件再原子重命名，写入失败或进程被杀时不会留下截断的文件
+	 * @param path
+	 *            存储的目的路径
+	 * @param image
+	 *            需要存储的图片
+	 * @param format
+	 *            编码格式 JPEG/PNG/WEBP
+	 * @param quality
+	 *            编码质量(0-100)
+	 * @param fsync
+	 *            重命名前是否将数据同步到磁盘。更安全但更慢，批量导出时可关闭
+	 * @return boolean 表示是否存储成功
+	 */
+	public static boolean saveBitmapToFile(String path, Bitmap image, Bitmap.CompressFormat format, int quality,
+			boolean fsync) {
 		try {
-			File file = new File(path);// 通过接收的路径创建一个文件
-			if (!file.exists() || file.isDirectory()) {// 如果该文件不存在，并且是一个目录
-				file.createNewFile();// 创建一个新文件
-			}
-			FileOutputStream fos = new FileOutputStream(file);// 创建文件输出流
-			image.compress(Bitmap.CompressFormat.JPEG, 100, fos);// 将图片文件转换为流
-			fos.flush();// 刷新流
-			fos.close();// 关闭流
+			BitmapWriter.write(image, path, format, quality, fsync);
 			return true;
-		} catch (FileNotFoundException e) {
-			e.printStackTrace();
-			return false;
 		} catch (IOException e) {
 			e.printStackTrace();
 			return false;
 		}
 	}
 
+	/**
+	 * @Description 在后台队列中将图片存储到文件，同一路径未开始写入的多次保存只写最后一次，
+	 *              参见{@link BitmapWriter#saveAsync}
+	 */
+	public static void saveBitmapToFileAsync(String path, Bitmap image, Bitmap.CompressFormat format, int quality,
+			boolean fsync, BitmapWriter.Callback callback) {
+		BitmapWriter.saveAsync(image, path, format, quality, fsync, false, callback);
+	}
+
 	/**
 	 * @Description 比例压缩方式
 	 * @param srcPath
@@ -286,6 +802,81 @@ public class BitmapUtil {
 	 * @date 2015年6月6日 下午4:39:14
 	 */
 	public static Bitmap compressImage(String srcPath) {
+		return compressImage(srcPath, 720 * 480);
+	}
+
+	/**
+	 * @Description 比例压缩方式，解码为ARGB_8888。允许使用RGB_565时调用
+	 *              {@link #compressImage(String, int, BitmapConfigPolicy.ColorMode, boolean)}
+	 * @param srcPath
+	 *            需要被压缩的图片的地址
+	 * @param maxNumOfPixels
+	 *            解码后的最大像素数
+	 * @return Bitmap 返回被压缩后的图片，由调用者持有，可以修改或回收
+	 */
+	public static Bitmap compressImage(String srcPath, int maxNumOfPixels) {
+		return compressImage(srcPath, maxNumOfPixels, BitmapConfigPolicy.ColorMode.FULL, false);
+	}
+
+	/**
+	 * @Description 比例压缩方式，解码的Config由{@link BitmapConfigPolicy}按颜色精度、用途和内存预算选择
+	 * @param srcPath
+	 *            需要被压缩的图片的地址
+	 * @param maxNumOfPixels
+	 *            解码后的最大像素数
+	 * @param colorMode
+	 *            允许的颜色精度，允许时不透明的JPEG使用RGB_565
+	 * @param displayOnly
+	 *            是否只用于显示，为true时API 26+使用HARDWARE位图，不能读取像素或在其上绘制
+	 * @return Bitmap 返回被压缩后的图片，由调用者持有
+	 */
+	public static Bitmap compressImage(String srcPath, int maxNumOfPixels, BitmapConfigPolicy.ColorMode colorMode,
+			boolean displayOnly) {
+		if (srcPath == null) {
+			return null;
+		}
+		return decodeSampled(srcPath, maxNumOfPixels, colorMode, displayOnly);
+	}
+
+	/**
+	 * @Description 与{@link #compressImage(String, int)}相同，但相同文件(路径与修改时间均相同)和参数的重复请求
+	 *              直接从内存缓存返回，适合列表中反复显示同一批图片
+	 * @param srcPath
+	 *            需要被压缩的图片的地址
+	 * @param maxNumOfPixels
+	 *            解码后的最大像素数
+	 * @return Bitmap 返回被压缩后的图片。该位图由内存缓存共享，不要修改或回收
+	 */
+	public static Bitmap compressImageCached(String srcPath, int maxNumOfPixels) {
+		return compressImageCached(srcPath, maxNumOfPixels, BitmapConfigPolicy.ColorMode.FULL, false);
+	}
+
+	/**
+	 * @Description 与{@link #compressImage(String, int, BitmapConfigPolicy.ColorMode, boolean)}相同，
+	 *              但结果放入内存缓存，相同文件和参数的重复请求直接从缓存返回
+	 * @return Bitmap 返回被压缩后的图片。该位图由内存缓存共享，不要修改或回收
+	 */
+	public static Bitmap compressImageCached(String srcPath, int maxNumOfPixels,
+			BitmapConfigPolicy.ColorMode colorMode, boolean displayOnly) {
+		if (srcPath == null) {
+			return null;
+		}
+		// 按可能的Config查找缓存，命中时不必读取文件
+		for (Config config : BitmapConfigPolicy.candidateConfigs(colorMode, displayOnly)) {
+			Bitmap cached = sMemoryCache.get(BitmapMemoryCache.Key.forFile(srcPath, maxNumOfPixels, config));
+			if (cached != null) {
+				return cached;
+			}
+		}
+		Bitmap bitmap = decodeSampled(srcPath, maxNumOfPixels, colorMode, displayOnly);
+		if (bitmap != null) {
+			sMemoryCache.put(BitmapMemoryCache.Key.forFile(srcPath, maxNumOfPixels, bitmap.getConfig()), bitmap);
+		}
+		return bitmap;
+	}
+
+	private static Bitmap decodeSampled(String srcPath, int maxNumOfPixels, BitmapConfigPolicy.ColorMode colorMode,
+			boolean displayOnly) {
 		BitmapFactory.Options newOpts = new BitmapFactory.Options();// 创建位图属性
 		newOpts.inJustDecodeBounds = true;// 读内容，如果为false，那么就是只读边(为了获取尺寸)不读内容
 		Bitmap bitmap = BitmapFactory.decodeFile(srcPath, newOpts);// 从接收的文件全路径和设定的属性来解析出位图
@@ -294,7 +885,7 @@ public class BitmapUtil {
 		// 这样的话就要运行时动态确定。在BitmapFactory.Options中提供了另一个成员inJustDecodeBounds。
 		// 设置inJustDecodeBounds为true后，decodeFile并不分配空间，但可计算出原始图片的长度和宽度，即opts.width和opts.height。
 		// 有了这两个参数，再通过一定的算法，即可得到一个恰当的inSampleSize。
-		newOpts.inSampleSize = computeSampleSize(newOpts, -1, 720 * 480);
+		newOpts.inSampleSize = computeSampleSize(newOpts, -1, maxNumOfPixels);
 		// 这里一定要将其设置回false，因为之前我们将其设置成了true
 		newOpts.inJustDecodeBounds = false;
 
@@ -313,41 +904,381 @@ public class BitmapUtil {
 		// be = 1;
 		// newOpts.inSampleSize = be;// 设置采样率
 
-		newOpts.inPreferredConfig = Config.ARGB_8888;// 该模式是默认的,可不设
-		newOpts.inPurgeable = true;// 同时设置才会有效
-		newOpts.inInputShareable = true;// 。当系统内存不够时候图片自动被回收
+		// 按格式、用途和内存预算选择Config(inPurgeable/inInputShareable在5.0以上已无效，不再设置)
+		BitmapConfigPolicy.apply(newOpts, colorMode, displayOnly);
+
+		bitmap = decodeWithPool(fileSource(srcPath), newOpts);
+		return bitmap;
+	}
+
+	/**
+	 * @Description compressPicture压缩前统一缩放到的宽度
+	 */
+	private static final int COMPRESS_PICTURE_WIDTH = 1024;
+	/**
+	 * @Description compressPicture质量压缩的目标字节数
+	 */
+	private static final int COMPRESS_PICTURE_MAX_BYTES = 100 * 1024;
+
+	/**
+	 * @description BitmapUtil compressPicture 质量压缩图片。已设置磁盘缓存时，同一文件(路径、大小、修改时间均未变)
+	 *              的压缩结果直接从磁盘缓存读取，不再缩放和编码
+	 * @param srcPath
+	 *            需要被压缩的图片的地址
+	 * @return Bitmap 返回被压缩后的图片
+	 * @author 马有为 email: mayouwei@outlook.com
+	 * @date 2015年10月12日 下午4:08:42
+	 */
+	public static Bitmap compressPicture(String srcPath) {
+		BitmapDiskCache cache = getDiskCache();
+		String key = cache != null ? compressPictureKey(new File(srcPath)) : null;
+		File cached = key != null ? getCachedFile(cache, key) : null;
+		if (cached != null) {
+			Bitmap bitmap = decodeCompressed(fileSource(cached.getPath()));
+			if (bitmap != null) {
+				return bitmap;
+			}// 缓存文件在get之后被淘汰，重新压缩
+		}
+		byte[] data = compressPictureData(srcPath);
+		if (data == null) {
+			return null;
+		}
+		if (key != null) {
+			putCachedData(cache, key, data);
+		}
+		return decodeCompressed(byteArraySource(data, 0, data.length));
+	}
+
+	/**
+	 * @Description 质量压缩图片并保存到磁盘缓存，返回压缩结果的输入流(如用于上传)。
+	 *              同一文件(路径、大小、修改时间均未变)再次调用时直接读取缓存，不解码也不编码。
+	 *              返回流而不是缓存文件：流打开后即使条目被淘汰删除也能读完，文件则可能在读取前就被删除
+	 * @param context
+	 *            用于打开默认磁盘缓存
+	 * @param srcPath
+	 *            需要被压缩的图片的地址
+	 * @return 压缩后的JPEG数据，由调用者关闭；解码失败时返回null。缓存不可用或刚写入就被淘汰时返回内存中的数据
+	 */
+	public static InputStream openCompressedPicture(Context context, String srcPath) {
+		File source = new File(srcPath);
+		if (!source.isFile()) {
+			return null;
+		}
+		BitmapDiskCache cache = getDiskCache(context);
+		String key = cache != null ? compressPictureKey(source) : null;
+		InputStream cached = key != null ? getCachedStream(cache, key) : null;
+		if (cached != null) {
+			return cached;
+		}
+		byte[] data = compressPictureData(srcPath);
+		if (data == null) {
+			return null;
+		}
+		if (key != null && putCachedData(cache, key, data) != null) {
+			cached = getCachedStream(cache, key);
+			if (cached != null) {
+				return cached;
+			}
+		}
+		return new ByteArrayInputStream(data);
+	}
+
+	public static Bitmap compressPicture(Bitmap bitmaps){
+		byte[] data = compressPictureData(bitmaps);
+		if (data == null)
+			return null;
+		return decodeCompressed(byteArraySource(data, 0, data.length));// 把压缩后的数据生成图片
+	}
+
+	/**
+	 * @Description 直接解码为压缩所需的宽度并质量压缩，返回JPEG数据
+	 */
+	private static byte[] compressPictureData(String srcPath) {
+		Bitmap source = decodeToSize(srcPath, COMPRESS_PICTURE_WIDTH, 0, ScaleMode.FIT);
+		if (source == null) {
+			return null;
+		}
+		byte[] data = compressPictureData(source);
+		release(source);// 原图由本方法解码，压缩后即可归还
+		return data;
+	}
+
+	private static byte[] compressPictureData(Bitmap bitmaps) {
+		if (bitmaps == null)
+			return null;
+		// 已是目标宽度时直接编码，不再复制一份
+		Bitmap image = bitmaps.getWidth() == COMPRESS_PICTURE_WIDTH ? bitmaps
+				: setBitmapSize(bitmaps, COMPRESS_PICTURE_WIDTH);
+		// 质量压缩至100kb以内，质量压缩到最低仍然超出时保留最低质量的结果
+		byte[] data = compressToTargetSize(image, COMPRESS_PICTURE_MAX_BYTES, Bitmap.CompressFormat.JPEG, 0, false);
+		if (image != bitmaps) {
+			release(image);// 缩放产生的中间图已编码完毕，归还复用池
+		}
+		return data;
+	}
+
+	private static Bitmap decodeCompressed(DecodeSource source) {
+		BitmapFactory.Options decodeOpts = new BitmapFactory.Options();
+		if (!decodeBounds(source, decodeOpts)) {
+			return null;
+		}
+		return decodeWithPool(source, decodeOpts);
+	}
+
+	/**
+	 * @Description compressPicture结果的磁盘缓存键：源文件标识、修改时间和全部压缩参数，任一改变都会重新压缩
+	 */
+	private static String compressPictureKey(File source) {
+		return BitmapDiskCache.hashKey("compressPicture", source.getAbsolutePath(), source.length(),
+				source.lastModified(), COMPRESS_PICTURE_WIDTH, COMPRESS_PICTURE_MAX_BYTES, Bitmap.CompressFormat.JPEG);
+	}
+
+	/***************** 磁盘缓存 *****************/
+	/**
+	 * @Description 默认磁盘缓存的目录名(位于应用缓存目录下)
+	 */
+	private static final String DISK_CACHE_DIR = "bitmap_cache";
+	/**
+	 * @Description 默认磁盘缓存的容量
+	 */
+	private static final long DEFAULT_DISK_CACHE_SIZE = 50L * 1024 * 1024;
+
+	/**
+	 * @Description 压缩结果的磁盘缓存，首次使用时打开
+	 */
+	private static BitmapDiskCache sDiskCache;
+
+	/**
+	 * @Description 获取磁盘缓存，尚未打开时在应用缓存目录下打开默认缓存。会读写磁盘，不要在主线程调用
+	 * @return 磁盘缓存，打开失败时返回null
+	 */
+	public static synchronized BitmapDiskCache getDiskCache(Context context) {
+		if (sDiskCache == null || sDiskCache.isClosed()) {
+			try {
+				sDiskCache = BitmapDiskCache.open(new File(context.getCacheDir(), DISK_CACHE_DIR),
+						DEFAULT_DISK_CACHE_SIZE);
+			} catch (IOException e) {
+				Logs.w(TAG, "open disk cache failed", e);
+				sDiskCache = null;
+			}
+		}
+		return sDiskCache;
+	}
+
+	/**
+	 * @Description 获取已打开的磁盘缓存，尚未打开时返回null
+	 */
+	public static synchronized BitmapDiskCache getDiskCache() {
+		return sDiskCache != null && !sDiskCache.isClosed() ? sDiskCache : null;
+	}
+
+	/**
+	 * @Description 替换磁盘缓存(例如使用其他目录或容量)，原缓存会被关闭
+	 */
+	public static synchronized void setDiskCache(BitmapDiskCache cache) {
+		if (cache == null) {
+			throw new IllegalArgumentException("cache == null");
+		}
+		if (sDiskCache != null && sDiskCache != cache) {
+			try {
+				sDiskCache.close();
+			} catch (IOException e) {
+				Logs.w(TAG, "close disk cache failed", e);
+			}
+		}
+		sDiskCache = cache;
+	}
+
+	private static File getCachedFile(BitmapDiskCache cache, String key) {
+		try {
+			return cache.get(key);
+		} catch (IOException e) {
+			Logs.w(TAG, "read disk cache failed", e);
+			return null;
+		} catch (IllegalStateException e) {
+			return null;// 缓存已被关闭
+		}
+	}
+
+	private static InputStream getCachedStream(BitmapDiskCache cache, String key) {
+		try {
+			return cache.getInputStream(key);
+		} catch (IOException e) {
+			Logs.w(TAG, "read disk cache failed", e);
+			return null;
+		} catch (IllegalStateException e) {
+			return null;// 缓存已被关闭
+		}
+	}
+
+	private static File putCachedData(BitmapDiskCache cache, String key, byte[] data) {
+		try {
+			return cache.put(key, data, 0, data.length);
+		} catch (IOException e) {
+			Logs.w(TAG, "write disk cache failed", e);
+			return null;
+		} catch (IllegalStateException e) {
+			return null;// 缓存已被关闭
+		}
+	}
+
+	/***************** 目标大小压缩 *****************/
+	/**
+	 * @Description 质量二分查找的精度，上下界相差不超过该值时停止查找
+	 */
+	private static final int QUALITY_TOLERANCE = 5;
+	/**
+	 * @Description 允许缩小尺寸时的最低质量，低于该质量时改为缩小尺寸
+	 */
+	private static final int DEFAULT_MIN_QUALITY = 30;
+	/**
+	 * @Description 结果达到目标大小的该比例时即认为足够接近，不再继续查找
+	 */
+	private static final float GOOD_ENOUGH_RATIO = 0.9f;
+	/**
+	 * @Description 缓冲区超过该容量时用完即丢弃，避免线程长期持有大块内存
+	 */
+	private static final int MAX_RETAINED_BUFFER = 2 * 1024 * 1024;
+	/**
+	 * @Description 每个线程复用的两个编码缓冲区：一个保存当前最佳结果，一个用于试探编码
+	 */
+	private static final ThreadLocal<GrowableByteArrayOutputStream[]> sEncodeBuffers = new ThreadLocal<GrowableByteArrayOutputStream[]>() {
+		@Override
+		protected GrowableByteArrayOutputStream[] initialValue() {
+			return new GrowableByteArrayOutputStream[] { new GrowableByteArrayOutputStream(64 * 1024),
+					new GrowableByteArrayOutputStream(64 * 1024) };
+		}
+	};
 
-		bitmap = BitmapFactory.decodeFile(srcPath, newOpts);
-		return bitmap;
+	/**
+	 * @Description 将图片编码为不超过指定字节数的数据。以二分查找确定编码质量，
+	 *              仅靠降低质量无法满足时按比例缩小尺寸后重试
+	 * @param bitmap
+	 *            需要编码的图片
+	 * @param maxBytes
+	 *            编码结果的最大字节数
+	 * @param format
+	 *            编码格式。PNG为无损格式，只能通过缩小尺寸满足大小要求
+	 * @return byte[] 编码后的数据，bitmap为null时返回null
+	 */
+	public static byte[] compressToTargetSize(Bitmap bitmap, int maxBytes, Bitmap.CompressFormat format) {
+		return compressToTargetSize(bitmap, maxBytes, format, DEFAULT_MIN_QUALITY, true);
 	}
 
 	/**
-	 * @description BitmapUtil compressPicture 质量压缩图片
-	 * @param srcPath
-	 *            需要被压缩的图片的地址
-	 * @return Bitmap 返回被压缩后的图片
-	 * @author 马有为 email: mayouwei@outlook.com
-	 * @date 2015年10月12日 下午4:08:42
+	 * @Description 将图片编码为不超过指定字节数的数据
+	 * @param bitmap
+	 *            需要编码的图片
+	 * @param maxBytes
+	 *            编码结果的最大字节数
+	 * @param format
+	 *            编码格式
+	 * @param minQuality
+	 *            允许使用的最低质量(0-100)
+	 * @param allowDownscale
+	 *            最低质量仍超出时是否缩小尺寸。为false时返回最低质量的结果(可能超出maxBytes)
+	 * @return byte[] 编码后的数据，bitmap为null时返回null
 	 */
-	public static Bitmap compressPicture(String srcPath) {
-		return compressPicture(BitmapFactory.decodeFile(srcPath));
+	public static byte[] compressToTargetSize(Bitmap bitmap, int maxBytes, Bitmap.CompressFormat format,
+			int minQuality, boolean allowDownscale) {
+		if (bitmap == null) {
+			return null;
+		}
+		GrowableByteArrayOutputStream[] buffers = sEncodeBuffers.get();
+		try {
+			Bitmap source = bitmap;
+			while (true) {
+				GrowableByteArrayOutputStream best = encodeToTargetSize(source, maxBytes, format, minQuality, buffers);
+				boolean fits = best.size() <= maxBytes;
+				if (fits || !allowDownscale || (source.getWidth() <= 1 && source.getHeight() <= 1)) {
+					if (source != bitmap) {
+						release(source);
+					}
+					return best.toByteArray();
+				}
+				// 最低质量仍超出时，按字节数比例估算缩放系数(编码大小与像素数近似成正比)
+				float scale = (float) Math.sqrt((double) maxBytes / best.size()) * GOOD_ENOUGH_RATIO;
+				int width = Math.max(1, (int) (source.getWidth() * scale));
+				int height = Math.max(1, (int) (source.getHeight() * scale));
+				Bitmap scaled = Bitmap.createScaledBitmap(source, width, height, true);
+				if (source != bitmap) {
+					release(source);
+				}
+				source = scaled;
+			}
+		} finally {
+			for (int i = 0; i < buffers.length; i++) {
+				if (buffers[i].capacity() > MAX_RETAINED_BUFFER) {
+					buffers[i] = new GrowableByteArrayOutputStream(64 * 1024);
+				} else {
+					buffers[i].reset();
+				}
+			}
+		}
 	}
 
-	public static Bitmap compressPicture(Bitmap bitmaps){
-		Bitmap image = setBitmapSize(bitmaps,1024);
-		if (image == null)
-			return null;
-		ByteArrayOutputStream baos = new ByteArrayOutputStream();
-		image.compress(Bitmap.CompressFormat.JPEG, 100, baos);// 质量压缩方法，这里100表示不压缩，把压缩后的数据存放到baos中
-		int options = 100;
-		while (baos.toByteArray().length / 1024 >= 100 && options > 0) { // 循环判断如果压缩后图片是否大于100kb,大于继续压缩
-			baos.reset();// 重置baos即清空baos
-			options -= 10;// 每次都减少10
-			image.compress(Bitmap.CompressFormat.JPEG, options, baos);// 这里压缩options%，把压缩后的数据存放到baos中
-		}
-		ByteArrayInputStream isBm = new ByteArrayInputStream(baos.toByteArray());// 把压缩后的数据baos存放到ByteArrayInputStream中
-		Bitmap bitmap = BitmapFactory.decodeStream(isBm, null, null);// 把ByteArrayInputStream数据生成图片
-		return bitmap;
+	/**
+	 * 查找满足大小的最高质量，返回保存结果的缓冲区。
+	 * 先试最高质量和最低质量确定区间，再在区间内用插值与二分的折中值逼近目标大小。
+	 * 最低质量仍超出时，返回最低质量的编码结果
+	 */
+	private static GrowableByteArrayOutputStream encodeToTargetSize(Bitmap bitmap, int maxBytes,
+			Bitmap.CompressFormat format, int minQuality, GrowableByteArrayOutputStream[] buffers) {
+		GrowableByteArrayOutputStream best = buffers[0];
+		GrowableByteArrayOutputStream scratch = buffers[1];
+		best.reset();
+		bitmap.compress(format, 100, best);
+		int lowQuality = Math.max(0, Math.min(minQuality, 100));
+		if (best.size() <= maxBytes || format == Bitmap.CompressFormat.PNG || lowQuality == 100) {
+			return best;// 最高质量即满足，或者无损格式不受质量影响
+		}
+		int highQuality = 100;
+		int highSize = best.size();
+		scratch.reset();
+		bitmap.compress(format, lowQuality, scratch);
+		// 交换缓冲区：best保存区间下界(满足大小或最低质量)的结果
+		GrowableByteArrayOutputStream temp = best;
+		best = scratch;
+		scratch = temp;
+		int lowSize = best.size();
+		if (lowSize <= maxBytes) {
+			while (highQuality - lowQuality > QUALITY_TOLERANCE && lowSize < maxBytes * GOOD_ENOUGH_RATIO) {
+				int middle = (lowQuality + highQuality) >>> 1;
+				int guess = lowQuality + (int) ((long) (maxBytes - lowSize) * (highQuality - lowQuality) / (highSize - lowSize));
+				int quality = Math.max(lowQuality + 1, Math.min(highQuality - 1, (guess + middle) >>> 1));
+				scratch.reset();
+				bitmap.compress(format, quality, scratch);
+				if (scratch.size() <= maxBytes) {
+					temp = best;
+					best = scratch;
+					scratch = temp;
+					lowQuality = quality;
+					lowSize = best.size();
+				} else {
+					highQuality = quality;
+					highSize = scratch.size();
+				}
+			}
+		}
+		buffers[0] = best;
+		buffers[1] = scratch;
+		return best;
+	}
+
+	/***************** 目标大小压缩 *****************/
+
+	/**
+	 * @Description 执行一组合并的变换(缩放/旋转/翻转/圆角)，只绘制一次、只分配一个输出位图
+	 * @param bitmap
+	 *            原图
+	 * @param transformation
+	 *            变换
+	 * @param recycleSource
+	 *            原图是否在变换后归还复用池(仅当原图由调用者创建且不再使用时传true)
+	 * @return Bitmap 变换结果，没有任何变换时返回原图
+	 */
+	public static Bitmap transform(Bitmap bitmap, Transformation transformation, boolean recycleSource) {
+		return transformation.apply(bitmap, recycleSource);
 	}
 
 	public static Bitmap setBitmapSize(Bitmap bm,int newWidth){
@@ -367,18 +1298,81 @@ public class BitmapUtil {
 		return mbitmap;
 	}
 
+	/**
+	 * @Description 将View按内容尺寸(UNSPECIFIED)测量、布局后绘制为位图
+	 * @param view
+	 *            需要绘制的View，可以是未添加到窗口中的View
+	 * @return Bitmap 由调用者持有的位图，不再使用时可调用{@link #release(Bitmap)}归还复用池；测量尺寸为0时返回null
+	 */
 	public static Bitmap getViewBitmap(View view){
-		view.setDrawingCacheEnabled(true);
-		//measure()实际测量 自己显示在屏幕上的宽高 2个参数，int widthMeasureSpec 和 int heightMeasureSpec表示具体的测量规则。
-		view.measure(View.MeasureSpec.makeMeasureSpec(0, View.MeasureSpec.UNSPECIFIED),
-				View.MeasureSpec.makeMeasureSpec(0, View.MeasureSpec.UNSPECIFIED));
-		//确定View的大小和位置的,然后将其绘制出来
-		view.layout(0, 0, view.getMeasuredWidth(), view.getMeasuredHeight());
-		//调用getDrawingCache方法就可 以获得view的cache图片
-		Bitmap bb = Bitmap.createBitmap(view.getDrawingCache());
-		//系统把原来的cache销毁
-		view.setDrawingCacheEnabled(false);
-		return bb;
+		int unspecified = View.MeasureSpec.makeMeasureSpec(0, View.MeasureSpec.UNSPECIFIED);
+		return renderView(view, unspecified, unspecified, 1f);
+	}
+
+	/**
+	 * @Description 绘制View用的画布按线程复用
+	 */
+	private static final ThreadLocal<Canvas> sViewCanvas = new ThreadLocal<Canvas>() {
+		@Override
+		protected Canvas initialValue() {
+			return new Canvas();
+		}
+	};
+
+	/**
+	 * @Description 按调用者给定的测量规则测量、布局View，再通过view.draw(canvas)直接绘制到复用池中的位图，
+	 *              不使用绘制缓存，也不复制位图。View中不能包含HARDWARE位图(软件画布无法绘制)
+	 * @param view
+	 *            需要绘制的View，可以是未添加到窗口中的View(如分享卡片、票据)
+	 * @param widthMeasureSpec
+	 *            宽度测量规则 View.MeasureSpec
+	 * @param heightMeasureSpec
+	 *            高度测量规则 View.MeasureSpec
+	 * @param scale
+	 *            输出缩放比例，生成缩略图时小于1，View本身仍按原尺寸布局
+	 * @return Bitmap 由调用者持有的位图，不再使用时可调用{@link #release(Bitmap)}归还复用池；测量尺寸为0时返回null
+	 */
+	public static Bitmap renderView(View view, int widthMeasureSpec, int heightMeasureSpec, float scale) {
+		view.measure(widthMeasureSpec, heightMeasureSpec);
+		int width = view.getMeasuredWidth();
+		int height = view.getMeasuredHeight();
+		view.layout(0, 0, width, height);
+		int outWidth = Math.round(width * scale);
+		int outHeight = Math.round(height * scale);
+		if (outWidth <= 0 || outHeight <= 0) {
+			return null;
+		}
+		Bitmap output = sBitmapPool.get(outWidth, outHeight, Config.ARGB_8888);// 已清空为透明
+		if (output == null) {
+			output = Bitmap.createBitmap(outWidth, outHeight, Config.ARGB_8888);
+		}
+		Canvas canvas = sViewCanvas.get();
+		canvas.setBitmap(output);
+		try {
+			int saveCount = canvas.save();
+			if (scale != 1f) {
+				canvas.scale(scale, scale);
+			}
+			view.draw(canvas);
+			canvas.restoreToCount(saveCount);
+		} finally {
+			canvas.setBitmap(null);
+		}
+		return output;
+	}
+
+	/**
+	 * @Description 批量绘制多个View，使用相同的测量规则和缩放比例，参数含义同
+	 *              {@link #renderView(View, int, int, float)}
+	 * @return List<Bitmap> 与views一一对应的位图，测量尺寸为0的View对应null
+	 */
+	public static List<Bitmap> renderViews(List<? extends View> views, int widthMeasureSpec, int heightMeasureSpec,
+			float scale) {
+		List<Bitmap> bitmaps = new ArrayList<Bitmap>(views.size());
+		for (View view : views) {
+			bitmaps.add(renderView(view, widthMeasureSpec, heightMeasureSpec, scale));
+		}
+		return bitmaps;
 	}
 
 	public static int computeSampleSize(BitmapFactory.Options options, int minSideLength, int maxNumOfPixels) {
@@ -397,6 +1391,23 @@ public class BitmapUtil {
 		return roundedSize;
 	}
 
+	/**
+	 * @Description 根据显示比例计算采样率：不超过1/scale的最大的2的幂，保证采样后的清晰度不低于显示需要
+	 * @param scale
+	 *            显示比例(屏幕像素/原图像素)，例如缩小一半显示时为0.5
+	 * @return int 采样率(inSampleSize)
+	 */
+	public static int computeSampleSizeForScale(float scale) {
+		int sampleSize = 1;
+		if (scale <= 0) {
+			return sampleSize;
+		}
+		while (sampleSize * 2 * scale <= 1f) {
+			sampleSize <<= 1;
+		}
+		return sampleSize;
+	}
+
 	private static int computeInitialSampleSize(BitmapFactory.Options options, int minSideLength, int maxNumOfPixels) {
 		double w = options.outWidth;
 		double h = options.outHeight;
@@ -418,6 +1429,306 @@ public class BitmapUtil {
 		}
 	}
 
+	/***************** Uri解码 *****************/
+	/**
+	 * @Description 最近解码过的Uri的图片信息缓存数量
+	 */
+	private static final int URI_INFO_CACHE_SIZE = 64;
+	/**
+	 * @Description 最近解码过的Uri对应的图片信息，再次解码同一张图片时不必重新读取尺寸。
+	 *              条目记录读取时内容的修改时间和大小，内容变化后不再使用；查询不到修改时间的Uri不缓存
+	 */
+	private static final LruCache<Uri, CachedUriInfo> sUriInfoCache = new LruCache<Uri, CachedUriInfo>(
+			URI_INFO_CACHE_SIZE);
+	/**
+	 * @Description 读取不可定位的Uri(如管道)时使用的缓冲区，每个线程一个，在多次解码之间重复使用
+	 */
+	private static final ThreadLocal<GrowableByteArrayOutputStream> sUriReadBuffer = new ThreadLocal<GrowableByteArrayOutputStream>() {
+		@Override
+		protected GrowableByteArrayOutputStream initialValue() {
+			return new GrowableByteArrayOutputStream(64 * 1024);
+		}
+	};
+
+	/**
+	 * 带内容版本的Uri图片信息
+	 */
+	private static final class CachedUriInfo {
+		final long lastModified;
+		final long length;
+		final ImageInfo info;
+
+		CachedUriInfo(long[] version, ImageInfo info) {
+			this.lastModified = version[0];
+			this.length = version[1];
+			this.info = info;
+		}
+	}
+
+	/**
+	 * 取出与内容版本一致的缓存信息
+	 *
+	 * @param version
+	 *            {@link #queryUriVersion}的结果，为null时不使用缓存
+	 */
+	private static ImageInfo getCachedUriInfo(Uri uri, long[] version) {
+		if (version == null) {
+			return null;
+		}
+		CachedUriInfo cached = sUriInfoCache.get(uri);
+		if (cached == null || cached.lastModified != version[0] || cached.length != version[1]) {
+			return null;
+		}
+		return cached.info;
+	}
+
+	/**
+	 * 在打开的Uri上执行的解码操作
+	 */
+	private interface UriTask<T> {
+		T run(DecodeSource source, BitmapFactory.Options options);
+	}
+
+	/**
+	 * @Description 读取Uri指向的图片的尺寸和格式(只读取文件头)，能查询到内容修改时间时结果会缓存
+	 * @param context
+	 *            上下文
+	 * @param uri
+	 *            content://、file://或android.resource://的图片地址
+	 * @return ImageInfo 图片信息，无法读取时返回null
+	 */
+	public static ImageInfo getImageInfo(Context context, Uri uri) {
+		long[] version = queryUriVersion(context, uri);
+		ImageInfo info = getCachedUriInfo(uri, version);
+		if (info != null) {
+			return info;
+		}
+		return withUri(context, uri, version, new UriTask<ImageInfo>() {
+			@Override
+			public ImageInfo run(DecodeSource source, BitmapFactory.Options options) {
+				return new ImageInfo(options.outWidth, options.outHeight, options.outMimeType);
+			}
+		});
+	}
+
+	/**
+	 * @Description 将Uri指向的图片直接解码为指定尺寸，不查询文件路径。
+	 *              只打开一次文件描述符，读取尺寸和解码像素共用同一个描述符
+	 * @param context
+	 *            上下文
+	 * @param uri
+	 *            content://、file://或android.resource://的图片地址
+	 * @param reqWidth
+	 *            目标宽度(像素)，小于等于0表示宽度不限
+	 * @param reqHeight
+	 *            目标高度(像素)，小于等于0表示高度不限
+	 * @param scaleMode
+	 *            缩放模式
+	 * @return Bitmap 解码结果，无法读取时返回null
+	 */
+	public static Bitmap decodeToSize(Context context, Uri uri, int reqWidth, int reqHeight, ScaleMode scaleMode) {
+		return decodeToSize(context, uri, reqWidth, reqHeight, scaleMode, BitmapConfigPolicy.ColorMode.FULL, false);
+	}
+
+	/**
+	 * @Description 将Uri指向的图片直接解码为指定尺寸，并由{@link BitmapConfigPolicy}选择Config
+	 * @see #decodeToSize(Context, Uri, int, int, ScaleMode)
+	 * @see #decodeToSize(String, int, int, ScaleMode, BitmapConfigPolicy.ColorMode, boolean)
+	 */
+	public static Bitmap decodeToSize(Context context, Uri uri, final int reqWidth, final int reqHeight,
+			final ScaleMode scaleMode, final BitmapConfigPolicy.ColorMode colorMode, final boolean displayOnly) {
+		return withUri(context, uri, null, new UriTask<Bitmap>() {
+			@Override
+			public Bitmap run(DecodeSource source, BitmapFactory.Options options) {
+				return decodeToSize(source, options, reqWidth, reqHeight, scaleMode, colorMode, displayOnly);
+			}
+		});
+	}
+
+	/**
+	 * @Description 按最大像素数压缩Uri指向的图片，与{@link #compressImage(String, int)}相同，
+	 *              但不查询文件路径，直接从文件描述符解码
+	 * @param context
+	 *            上下文
+	 * @param uri
+	 *            图片地址
+	 * @param maxNumOfPixels
+	 *            解码后的最大像素数
+	 * @return Bitmap 返回被压缩后的图片，由调用者持有
+	 */
+	public static Bitmap compressImage(Context context, Uri uri, int maxNumOfPixels) {
+		return withUri(context, uri, null, sampledUriTask(maxNumOfPixels));
+	}
+
+	/**
+	 * @Description 与{@link #compressImage(Context, Uri, int)}相同，但相同内容和参数的重复请求直接从内存缓存返回。
+	 *              内容是否变化按Uri的修改时间和大小判断，查询不到修改时间时不使用缓存
+	 * @return Bitmap 返回被压缩后的图片。使用缓存时该位图由内存缓存共享，不要修改或回收
+	 */
+	public static Bitmap compressImageCached(Context context, Uri uri, int maxNumOfPixels) {
+		long[] version = queryUriVersion(context, uri);
+		if (version == null) {
+			return compressImage(context, uri, maxNumOfPixels);
+		}
+		Bitmap cached = sMemoryCache.get(
+				BitmapMemoryCache.Key.forUri(uri, version[0], version[1], maxNumOfPixels, Config.ARGB_8888));
+		if (cached != null) {
+			return cached;
+		}
+		Bitmap bitmap = withUri(context, uri, version, sampledUriTask(maxNumOfPixels));
+		if (bitmap != null) {
+			sMemoryCache.put(BitmapMemoryCache.Key.forUri(uri, version[0], version[1], maxNumOfPixels,
+					bitmap.getConfig()), bitmap);
+		}
+		return bitmap;
+	}
+
+	private static UriTask<Bitmap> sampledUriTask(final int maxNumOfPixels) {
+		return new UriTask<Bitmap>() {
+			@Override
+			public Bitmap run(DecodeSource source, BitmapFactory.Options options) {
+				options.inSampleSize = computeSampleSize(options, -1, maxNumOfPixels);
+				BitmapConfigPolicy.apply(options, BitmapConfigPolicy.ColorMode.FULL, false);
+				return decodeWithPool(source, options);
+			}
+		};
+	}
+
+	/**
+	 * 查询Uri内容的修改时间和字节数，用于判断内容是否变化。
+	 * file://取文件本身的属性；content://查询DocumentsContract或媒体库的修改时间列和OpenableColumns.SIZE；
+	 * android.resource://的内容在应用运行期间不变
+	 *
+	 * @return {修改时间, 字节数(未知时为-1)}，查询不到修改时间时返回null
+	 */
+	private static long[] queryUriVersion(Context context, Uri uri) {
+		String scheme = uri.getScheme();
+		if (ContentResolver.SCHEME_ANDROID_RESOURCE.equals(scheme)) {
+			return new long[] { 0, -1 };
+		}
+		if (ContentResolver.SCHEME_FILE.equals(scheme)) {
+			File file = new File(uri.getPath());
+			long lastModified = file.lastModified();
+			return lastModified > 0 ? new long[] { lastModified, file.length() } : null;
+		}
+		if (!ContentResolver.SCHEME_CONTENT.equals(scheme)) {
+			return null;
+		}
+		Cursor cursor = null;
+		try {
+			// 不同提供者支持的列不同，不指定projection，按列名取存在的列
+			cursor = context.getContentResolver().query(uri, null, null, null, null);
+			if (cursor == null || !cursor.moveToFirst()) {
+				return null;
+			}
+			long lastModified = -1;
+			int index = cursor.getColumnIndex(DocumentsContract.Document.COLUMN_LAST_MODIFIED);
+			if (index >= 0 && !cursor.isNull(index)) {
+				lastModified = cursor.getLong(index);
+			} else {
+				index = cursor.getColumnIndex(MediaStore.MediaColumns.DATE_MODIFIED);
+				if (index >= 0 && !cursor.isNull(index)) {
+					lastModified = cursor.getLong(index) * 1000;// 媒体库以秒为单位
+				}
+			}
+			if (lastModified <= 0) {
+				return null;
+			}
+			index = cursor.getColumnIndex(OpenableColumns.SIZE);
+			long length = index >= 0 && !cursor.isNull(index) ? cursor.getLong(index) : -1;
+			return new long[] { lastModified, length };
+		} catch (RuntimeException e) {
+			Logs.w(TAG, "query uri version failed: " + uri, e);
+			return null;
+		} finally {
+			if (cursor != null) {
+				cursor.close();
+			}
+		}
+	}
+
+	/**
+	 * 打开Uri并读取图片尺寸(内容版本与缓存一致时直接使用缓存)，再执行解码操作，最后关闭。
+	 * 可定位的描述符直接交给decodeFileDescriptor多次解码；管道等不可定位或带偏移的描述符只能顺序读取一次，
+	 * 先读入本线程的缓冲区再解码，同样只打开一次
+	 *
+	 * @param version
+	 *            {@link #queryUriVersion}的结果，为null时不读取也不写入尺寸缓存
+	 */
+	private static <T> T withUri(Context context, Uri uri, long[] version, UriTask<T> task) {
+		AssetFileDescriptor afd = null;
+		GrowableByteArrayOutputStream buffer = null;
+		try {
+			afd = context.getContentResolver().openAssetFileDescriptor(uri, "r");
+			if (afd == null) {
+				return null;
+			}
+			DecodeSource source;
+			if (afd.getStartOffset() == 0 && isSeekable(afd.getFileDescriptor())) {
+				source = fileDescriptorSource(afd.getFileDescriptor());
+			} else {
+				buffer = sUriReadBuffer.get();
+				readFully(afd.createInputStream(), buffer);
+				source = byteArraySource(buffer.getBuffer(), 0, buffer.size());
+			}
+			BitmapFactory.Options options = new BitmapFactory.Options();
+			ImageInfo info = getCachedUriInfo(uri, version);
+			if (info != null) {
+				options.outWidth = info.getWidth();
+				options.outHeight = info.getHeight();
+				options.outMimeType = info.getMimeType();
+			} else if (decodeBounds(source, options)) {
+				if (version != null) {
+					sUriInfoCache.put(uri, new CachedUriInfo(version,
+							new ImageInfo(options.outWidth, options.outHeight, options.outMimeType)));
+				}
+			} else {
+				return null;
+			}
+			return task.run(source, options);
+		} catch (IOException e) {
+			Logs.w(TAG, "open uri failed: " + uri, e);
+			return null;
+		} catch (SecurityException e) {
+			Logs.w(TAG, "no permission to read uri: " + uri, e);
+			return null;
+		} finally {
+			if (buffer != null) {
+				if (buffer.capacity() > MAX_RETAINED_BUFFER) {
+					sUriReadBuffer.remove();// 不长期保留读取超大图片时增长的缓冲区
+				} else {
+					buffer.reset();
+				}
+			}
+			if (afd != null) {
+				try {
+					afd.close();
+				} catch (IOException e) {
+					e.printStackTrace();
+				}
+			}
+		}
+	}
+
+	private static boolean isSeekable(FileDescriptor fd) {
+		try {
+			Os.lseek(fd, 0, OsConstants.SEEK_CUR);
+			return true;
+		} catch (ErrnoException e) {
+			return false;
+		}
+	}
+
+	private static void readFully(InputStream in, GrowableByteArrayOutputStream out) throws IOException {
+		try {
+			out.readFrom(in);
+		} finally {
+			in.close();
+		}
+	}
+
+	/***************** Uri解码 *****************/
+
 	/**
 	 * @description BitmapUtil getPath 根据URI获取图片路经
 	 * @param context
@@ -427,7 +1738,10 @@ public class BitmapUtil {
 	 * @return String 类型的图片路经
 	 * @author 马有为 email: mayouwei@outlook.com
 	 * @date 2015年7月12日 下午8:11:34
+	 * @deprecated 依赖已废弃的_data列，分区存储下无法使用。解码图片请直接使用
+	 *             {@link #decodeToSize(Context, Uri, int, int, ScaleMode)}或{@link #compressImage(Context, Uri, int)}
 	 */
+	@Deprecated
 	@SuppressLint("NewApi")
 	public static String getPath(final Context context, final Uri uri) {
 		final boolean isKitKat = Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT;// 版本信息是否高于Android4.4
@@ -499,57 +1813,233 @@ public class BitmapUtil {
 		return null;
 	}
 
+	/**
+	 * @Description 获取相册选择结果的图片路径
+	 * @return String 图片路径，没有选择结果或查询不到时返回null
+	 * @deprecated 依赖已废弃的_data列，分区存储下无法使用。请使用data.getData()得到的Uri直接解码，
+	 *             见{@link #decodeToSize(Context, Uri, int, int, ScaleMode)}
+	 */
+	@Deprecated
 	public static String selectImage(Context context, Intent data) {
-		Uri selectedImage = data.getData();
+		Uri selectedImage = data != null ? data.getData() : null;
+		if (selectedImage == null) {
+			return null;
+		}
 		// Log.e(TAG, selectedImage.toString());
-		if (selectedImage != null) {
-			String uriStr = selectedImage.toString();
-			String path = uriStr.substring(10, uriStr.length());
-			if (path.startsWith("com.sec.android.gallery3d")) {
-				Logs.e(TAG, "It's auto backup pic path:" + selectedImage.toString());
-				return null;
-			}
+		String uriStr = selectedImage.toString();
+		if (uriStr.length() > 10 && uriStr.substring(10).startsWith("com.sec.android.gallery3d")) {
+			Logs.e(TAG, "It's auto backup pic path:" + selectedImage.toString());
+			return null;
 		}
 		String[] filePathColumn = { MediaStore.Images.Media.DATA };
 		Cursor cursor = context.getContentResolver().query(selectedImage, filePathColumn, null, null, null);
-		cursor.moveToFirst();
-		int columnIndex = cursor.getColumnIndex(filePathColumn[0]);
-		String picturePath = cursor.getString(columnIndex);
-		cursor.close();
-		return picturePath;
+		if (cursor == null) {
+			return null;
+		}
+		try {
+			if (!cursor.moveToFirst()) {
+				return null;
+			}
+			int columnIndex = cursor.getColumnIndex(filePathColumn[0]);
+			return columnIndex >= 0 ? cursor.getString(columnIndex) : null;
+		} finally {
+			cursor.close();
+		}
 	}
 
 	/**
-	 * 图片旋转
+	 * 图片旋转(顺时针，支持任意角度，输出尺寸为旋转后的外接矩形)
 	 * */
 	public static Bitmap adjustPhotoRotation(Bitmap bm, final int orientationDegree) {
-		Matrix m = new Matrix();
-		m.setRotate(orientationDegree, (float) bm.getWidth() / 2, (float) bm.getHeight() / 2);
-		float targetX, targetY;
-		if (orientationDegree == 90) {
-			targetX = bm.getHeight();
-			targetY = 0;
-		} else {
-			targetX = bm.getHeight();
-			targetY = bm.getWidth();
+		Bitmap rotated = new Transformation().rotate(orientationDegree).apply(bm, false);
+		if (rotated == bm) {
+			// 保持一贯返回新位图的行为，调用者可以安全回收原图
+			rotated = copyOf(bm);
+		}
+		return rotated;
+	}
+
+	/***************** 文件头探测 *****************/
+	/**
+	 * @Description 读取图片的宽高、格式、EXIF方向和是否带透明通道。JPEG/PNG/WebP/GIF由{@link ImageHeaderParser}
+	 *              在Java层只读取文件头得到，不经过JNI；其他格式退回BitmapFactory读取尺寸。
+	 *              批量读取并持久化缓存可使用{@link ImageProber}
+	 * @param path
+	 *            图片路径
+	 * @return ImageInfo 图片信息，不是图片或读取失败时返回null
+	 */
+	public static ImageInfo getImageInfo(String path) {
+		try {
+			ImageInfo info = ImageHeaderParser.parse(new File(path));
+			if (info != null) {
+				return info;
+			}
+		} catch (IOException e) {
+			Logs.w(TAG, "read image header failed: " + path, e);
+			return null;
+		}
+		BitmapFactory.Options options = new BitmapFactory.Options();
+		if (!decodeBounds(fileSource(path), options)) {
+			return null;
 		}
+		return new ImageInfo(options.outWidth, options.outHeight, options.outMimeType, getExifOrientation(path), true);
+	}
 
-		final float[] values = new float[9];
-		m.getValues(values);
+	/***************** 文件头探测 *****************/
+
+	/***************** EXIF方向 *****************/
+
+	/**
+	 * @Description 读取图片EXIF中的方向标记(只读取文件头)
+	 * @param path
+	 *            图片路径
+	 * @return int ExifInterface.ORIENTATION_*，读取失败或没有标记时返回ORIENTATION_NORMAL
+	 */
+	public static int getExifOrientation(String path) {
+		try {
+			return new ExifInterface(path).getAttributeInt(ExifInterface.TAG_ORIENTATION,
+					ExifInterface.ORIENTATION_NORMAL);
+		} catch (IOException e) {
+			Logs.w(TAG, "read exif failed: " + path, e);
+			return ExifInterface.ORIENTATION_NORMAL;
+		}
+	}
 
-		float x1 = values[Matrix.MTRANS_X];
-		float y1 = values[Matrix.MTRANS_Y];
+	/**
+	 * @Description 方向标记是否需要交换宽高(旋转90/270度的各种情况)
+	 */
+	public static boolean isExifOrientationTransposed(int orientation) {
+		return orientation == ExifInterface.ORIENTATION_ROTATE_90 || orientation == ExifInterface.ORIENTATION_ROTATE_270
+				|| orientation == ExifInterface.ORIENTATION_TRANSPOSE
+				|| orientation == ExifInterface.ORIENTATION_TRANSVERSE;
+	}
 
-		m.postTranslate(targetX - x1, targetY - y1);
+	/**
+	 * @Description 按EXIF方向解码图片：读取尺寸时一并读取方向标记，按摆正后的宽高计算采样率和密度缩放，
+	 *              解码后在同一次绘制中完成旋转/镜像。方向正常时不会产生第二个位图
+	 * @param path
+	 *            图片路径
+	 * @param reqWidth
+	 *            摆正后的目标宽度，小于等于0表示不缩放
+	 * @param reqHeight
+	 *            摆正后的目标高度，小于等于0表示不缩放
+	 * @return Bitmap 摆正后的图片，宽高都不小于目标宽高，解码失败返回null
+	 */
+	public static Bitmap decodeFileWithExif(String path, int reqWidth, int reqHeight) {
+		// 一次读取文件头同时得到尺寸和方向
+		ImageInfo info = getImageInfo(path);
+		if (info == null) {
+			return null;
+		}
+		DecodeSource source = fileSource(path);
+		BitmapFactory.Options options = new BitmapFactory.Options();
+		options.outWidth = info.getWidth();
+		options.outHeight = info.getHeight();
+		options.outMimeType = info.getMimeType();
+		int orientation = info.getOrientation();
+		if (isExifOrientationTransposed(orientation)) {
+			// 原图方向上的目标尺寸
+			setTargetSize(source, options, reqHeight, reqWidth, ScaleMode.FILL, false);
+		} else {
+			setTargetSize(source, options, reqWidth, reqHeight, ScaleMode.FILL, false);
+		}
+		Bitmap bitmap = decodeWithPool(source, options);
+		return new Transformation().exifOrientation(orientation).apply(bitmap, true);
+	}
 
-		Bitmap bm1 = Bitmap.createBitmap(bm.getHeight(), bm.getWidth(), Config.ARGB_8888);
+	/**
+	 * @Description 只改写EXIF方向标记，不解码、不重新编码图片(无损)，仅支持JPEG
+	 * @param path
+	 *            图片路径(原地修改)
+	 * @param orientation
+	 *            新的方向标记 ExifInterface.ORIENTATION_*
+	 * @return boolean 是否修改成功
+	 */
+	public static boolean setExifOrientation(String path, int orientation) {
+		try {
+			ExifInterface exif = new ExifInterface(path);
+			exif.setAttribute(ExifInterface.TAG_ORIENTATION, String.valueOf(orientation));
+			exif.saveAttributes();
+			return true;
+		} catch (IOException e) {
+			Logs.w(TAG, "write exif failed: " + path, e);
+			return false;
+		}
+	}
 
-		Paint paint = new Paint();
-		Canvas canvas = new Canvas(bm1);
-		canvas.drawBitmap(bm, m, paint);
-		return bm1;
+	/**
+	 * @Description 无损旋转：在现有EXIF方向的基础上再顺时针旋转指定角度，只改写方向标记，仅支持JPEG
+	 * @param path
+	 *            图片路径(原地修改)
+	 * @param degrees
+	 *            顺时针旋转角度，必须是90的倍数
+	 * @return boolean 是否修改成功
+	 */
+	public static boolean rotateExifOrientation(String path, int degrees) {
+		if (degrees % 90 != 0) {
+			throw new IllegalArgumentException("degrees must be a multiple of 90: " + degrees);
+		}
+		int orientation = getExifOrientation(path);
+		// 方向标记可以表示为先顺时针旋转rotation度、再(可选)水平镜像
+		int rotation;
+		boolean flipped;
+		switch (orientation) {
+		case ExifInterface.ORIENTATION_FLIP_HORIZONTAL:
+			rotation = 0;
+			flipped = true;
+			break;
+		case ExifInterface.ORIENTATION_ROTATE_180:
+			rotation = 180;
+			flipped = false;
+			break;
+		case ExifInterface.ORIENTATION_FLIP_VERTICAL:
+			rotation = 180;
+			flipped = true;
+			break;
+		case ExifInterface.ORIENTATION_TRANSPOSE:
+			rotation = 90;
+			flipped = true;
+			break;
+		case ExifInterface.ORIENTATION_ROTATE_90:
+			rotation = 90;
+			flipped = false;
+			break;
+		case ExifInterface.ORIENTATION_TRANSVERSE:
+			rotation = 270;
+			flipped = true;
+			break;
+		case ExifInterface.ORIENTATION_ROTATE_270:
+			rotation = 270;
+			flipped = false;
+			break;
+		default:
+			rotation = 0;
+			flipped = false;
+			break;
+		}
+		// 镜像之后再旋转，等价于镜像之前反方向旋转
+		rotation = flipped ? rotation - degrees : rotation + degrees;
+		rotation = ((rotation % 360) + 360) % 360;
+		int result;
+		switch (rotation) {
+		case 90:
+			result = flipped ? ExifInterface.ORIENTATION_TRANSPOSE : ExifInterface.ORIENTATION_ROTATE_90;
+			break;
+		case 180:
+			result = flipped ? ExifInterface.ORIENTATION_FLIP_VERTICAL : ExifInterface.ORIENTATION_ROTATE_180;
+			break;
+		case 270:
+			result = flipped ? ExifInterface.ORIENTATION_TRANSVERSE : ExifInterface.ORIENTATION_ROTATE_270;
+			break;
+		default:
+			result = flipped ? ExifInterface.ORIENTATION_FLIP_HORIZONTAL : ExifInterface.ORIENTATION_NORMAL;
+			break;
+		}
+		return setExifOrientation(path, result);
 	}
 
+	/***************** EXIF方向 *****************/
+
 	/**
 	 * * @param uri The Uri to check. * @return Whether the Uri authority is
 	 * ExternalStorageProvider.
@@ -0,0 +1,267 @@
+package com.suwec.framework.utils;
+
+import android.graphics.Bitmap;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 图片文件写入
+ * <p>
+ * 通过大缓冲区写入同目录下的临时文件，可选fsync，完成后原子重命名为目标文件，
+ * 写入中途崩溃或被杀时目标文件要么是旧内容、要么是完整的新内容，不会出现截断的文件。
+ * 异步保存在后台队列中执行，同一路径尚未开始写入的多次保存会合并为最后一次；
+ * 同一路径的保存依次执行，前一次写入完成后才开始下一次，旧图片不会覆盖新图片。
+ * </p>
+ */
+public class BitmapWriter {
+	private static final String TAG = "BitmapWriter";
+	/** 写文件缓冲区大小 */
+	private static final int BUFFER_SIZE = 64 * 1024;
+	/** 后台写入线程数，磁盘IO为主，两个线程足以让编码与写入交替进行 */
+	private static final int WRITER_THREADS = 2;
+
+	/**
+	 * 异步保存结果回调(主线程)
+	 */
+	public interface Callback {
+		void onSaved(String path);
+
+		void onFailed(String path, IOException error);
+	}
+
+	private static ExecutorService sExecutor;
+	private static final Handler sMainHandler = new Handler(Looper.getMainLooper());
+	/** 尚未开始写入的任务，按目标路径合并 */
+	private static final Map<String, SaveTask> sPending = new HashMap<String, SaveTask>();
+	/** 正在写入的目标路径，同一路径的下一个任务等当前任务完成后再提交 */
+	private static final Set<String> sWriting = new HashSet<String>();
+
+	private BitmapWriter() {
+		/* cannot be instantiated */
+		throw new UnsupportedOperationException("cannot be instantiated");
+	}
+
+	/**
+	 * 同步写入图片文件(原子替换)
+	 *
+	 * @param bitmap
+	 *            图片
+	 * @param path
+	 *            目标路径
+	 * @param format
+	 *            编码格式 JPEG/PNG/WEBP
+	 * @param quality
+	 *            编码质量(0-100)，PNG忽略
+	 * @param fsync
+	 *            重命名前是否将数据同步到磁盘。更安全但更慢，导出大量图片时可关闭
+	 * @throws IOException
+	 *             编码或写入失败，此时目标文件保持原样
+	 */
+	public static void write(Bitmap bitmap, String path, Bitmap.CompressFormat format, int quality, boolean fsync)
+			throws IOException {
+		if (bitmap == null || bitmap.isRecycled()) {
+			throw new IOException("bitmap is null or recycled");
+		}
+		File target = new File(path);
+		File dir = target.getAbsoluteFile().getParentFile();
+		if (dir != null && !dir.exists() && !dir.mkdirs() && !dir.exists()) {
+			throw new IOException("cannot create directory: " + dir);
+		}
+		String prefix = target.getName() + ".";
+		if (prefix.length() < 3) {
+			prefix += "tmp";// createTempFile要求前缀至少3个字符
+		}
+		File temp = File.createTempFile(prefix, ".tmp", dir);
+		boolean success = false;
+		FileOutputStream fos = null;
+		try {
+			fos = new FileOutputStream(temp);
+			BufferedOutputStream out = new BufferedOutputStream(fos, BUFFER_SIZE);
+			if (!bitmap.compress(format, quality, out)) {
+				throw new IOException("bitmap compress failed: " + path);
+			}
+			out.flush();
+			if (fsync) {
+				fos.getFD().sync();
+			}
+			fos.close();
+			fos = null;
+			if (!temp.renameTo(target)) {
+				throw new IOException("rename failed: " + temp + " -> " + target);
+			}
+			success = true;
+		} finally {
+			if (fos != null) {
+				try {
+					fos.close();
+				} catch (IOException e) {
+					e.printStackTrace();
+				}
+			}
+			if (!success && !temp.delete()) {
+				Logs.w(TAG, "cannot delete temp file: " + temp);
+			}
+		}
+	}
+
+	/**
+	 * 在后台队列中保存图片。同一路径尚未开始写入的保存请求会被新的请求替换，所有回调都会收到最终结果；
+	 * 同一路径正在写入时，新的请求等写入完成后再执行
+	 *
+	 * @param bitmap
+	 *            图片，写入完成前不能回收
+	 * @param path
+	 *            目标路径
+	 * @param format
+	 *            编码格式
+	 * @param quality
+	 *            编码质量(0-100)
+	 * @param fsync
+	 *            重命名前是否将数据同步到磁盘，参见{@link #write}。合并的请求中任一个要求同步时都会同步
+	 * @param releaseAfterWrite
+	 *            写入(或被合并替换)后是否将位图归还复用池
+	 * @param callback
+	 *            结果回调，可以为null
+	 */
+	public static void saveAsync(Bitmap bitmap, String path, Bitmap.CompressFormat format, int quality,
+			boolean fsync, boolean releaseAfterWrite, Callback callback) {
+		Bitmap replaced = null;
+		boolean releaseReplaced = false;
+		synchronized (sPending) {
+			SaveTask task = sPending.get(path);
+			if (task != null) {
+				// 合并：替换为最新的图片和参数
+				replaced = task.bitmap;
+				releaseReplaced = task.releaseAfterWrite && replaced != bitmap;
+				task.bitmap = bitmap;
+				task.format = format;
+				task.quality = quality;
+				task.fsync |= fsync;
+				task.releaseAfterWrite = releaseAfterWrite;
+			} else {
+				task = new SaveTask(path, bitmap, format, quality, fsync, releaseAfterWrite);
+				sPending.put(path, task);
+				if (!sWriting.contains(path)) {
+					getExecutor().execute(task);
+				}// 否则由正在写入的任务完成后提交
+			}
+			if (callback != null) {
+				task.callbacks.add(callback);
+			}
+		}
+		if (releaseReplaced) {
+			BitmapUtil.release(replaced);
+		}
+	}
+
+	private static synchronized ExecutorService getExecutor() {
+		if (sExecutor == null) {
+			ThreadPoolExecutor executor = new ThreadPoolExecutor(WRITER_THREADS, WRITER_THREADS, 30, TimeUnit.SECONDS,
+					new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+						private final AtomicInteger count = new AtomicInteger(1);
+
+						@Override
+						public Thread newThread(final Runnable r) {
+							return new Thread(new Runnable() {
+								@Override
+								public void run() {
+									Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+									r.run();
+								}
+							}, TAG + "-" + count.getAndIncrement());
+						}
+					});
+			executor.allowCoreThreadTimeOut(true);
+			sExecutor = executor;
+		}
+		return sExecutor;
+	}
+
+	private static final class SaveTask implements Runnable {
+		final String path;
+		final List<Callback> callbacks = new ArrayList<Callback>(1);
+		Bitmap bitmap;
+		Bitmap.CompressFormat format;
+		int quality;
+		boolean fsync;
+		boolean releaseAfterWrite;
+
+		SaveTask(String path, Bitmap bitmap, Bitmap.CompressFormat format, int quality, boolean fsync,
+				boolean releaseAfterWrite) {
+			this.path = path;
+			this.bitmap = bitmap;
+			this.format = format;
+			this.quality = quality;
+			this.fsync = fsync;
+			this.releaseAfterWrite = releaseAfterWrite;
+		}
+
+		@Override
+		public void run() {
+			// 开始写入后不再接受合并，之后同一路径的请求重新排队，等本次写入完成后执行
+			synchronized (sPending) {
+				sPending.remove(path);
+				sWriting.add(path);
+			}
+			try {
+				writeAndNotify();
+			} finally {
+				synchronized (sPending) {
+					sWriting.remove(path);
+					SaveTask next = sPending.get(path);
+					if (next != null) {
+						getExecutor().execute(next);
+					}
+				}
+			}
+		}
+
+		private void writeAndNotify() {
+			IOException error = null;
+			try {
+				write(bitmap, path, format, quality, fsync);
+			} catch (IOException e) {
+				Logs.w(TAG, "save failed: " + path, e);
+				error = e;
+			}
+			if (releaseAfterWrite) {
+				BitmapUtil.release(bitmap);
+			}
+			bitmap = null;
+			if (callbacks.isEmpty()) {
+				return;
+			}
+			final IOException result = error;
+			sMainHandler.post(new Runnable() {
+				@Override
+				public void run() {
+					for (Callback callback : callbacks) {
+						if (result == null) {
+							callback.onSaved(path);
+						} else {
+							callback.onFailed(path, result);
+						}
+					}
+				}
+			});
+		}
+	}
+}
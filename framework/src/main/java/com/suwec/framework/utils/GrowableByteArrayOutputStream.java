@@ -0,0 +1,58 @@
+package com.suwec.framework.utils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+/**
+ * 可直接访问内部缓冲区的字节数组输出流
+ * <p>
+ * 与ByteArrayOutputStream相比，读取内容时不必通过toByteArray()复制整个缓冲区，
+ * reset()后缓冲区保留已增长的容量，可在多次编码之间重复使用。
+ * </p>
+ */
+class GrowableByteArrayOutputStream extends ByteArrayOutputStream {
+
+	GrowableByteArrayOutputStream(int initialCapacity) {
+		super(initialCapacity);
+	}
+
+	/**
+	 * 内部缓冲区(不复制)，有效数据为[0, size())
+	 */
+	synchronized byte[] getBuffer() {
+		return buf;
+	}
+
+	/**
+	 * 将输入流剩余的内容直接读入内部缓冲区(追加在已有内容之后)，不经过中间缓冲区。不关闭输入流
+	 *
+	 * @return 读取的字节数
+	 */
+	synchronized int readFrom(InputStream in) throws IOException {
+		int total = 0;
+		while (true) {
+			if (count == buf.length) {
+				int capacity = buf.length << 1;
+				if (capacity < 0) {
+					throw new OutOfMemoryError("buffer too large");
+				}
+				buf = Arrays.copyOf(buf, Math.max(capacity, 256));
+			}
+			int n = in.read(buf, count, buf.length - count);
+			if (n < 0) {
+				return total;
+			}
+			count += n;
+			total += n;
+		}
+	}
+
+	/**
+	 * 当前缓冲区容量
+	 */
+	synchronized int capacity() {
+		return buf.length;
+	}
+}
@@ -0,0 +1,246 @@
+package com.suwec.framework.utils;
+
+import java.util.BitSet;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * 身份证号码批量并行校验
+ * <p>
+ * 把号码列表按区间递归二分后交给ForkJoinPool并行校验，每个号码的规则与{@link IDCardValidator#validate(CharSequence)}相同。
+ * 结果是一个合法号码的BitSet和每行一个字节的结果码数组。拆分点对齐到64的倍数，
+ * 各任务写入互不重叠的long字，合并时不需要同步。
+ * </p>
+ * 用法：
+ * <pre>
+ * IDCardBulkValidator.Result result = IDCardBulkValidator.validate(ids);
+ * for (int i = result.getValid().nextClearBit(0); i &lt; result.size(); i = result.getValid().nextClearBit(i + 1)) {
+ *     int reason = result.getCode(i);
+ * }
+ * </pre>
+ */
+public final class IDCardBulkValidator {
+
+    /** 每个任务至少校验的行数，必须是64的倍数 */
+    private static final int LEAF_SIZE = 4096;
+
+    private static volatile ForkJoinPool sPool;
+
+    private IDCardBulkValidator() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * 默认的线程池，并行度为CPU核数，首次使用时创建
+     */
+    private static ForkJoinPool defaultPool() {
+        ForkJoinPool pool = sPool;
+        if (pool == null) {
+            synchronized (IDCardBulkValidator.class) {
+                pool = sPool;
+                if (pool == null) {
+                    pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+                    sPool = pool;
+                }
+            }
+        }
+        return pool;
+    }
+
+    /**
+     * 使用默认线程池并行校验
+     *
+     * @param ids 号码列表，元素可以为null(按长度不正确处理)
+     */
+    public static Result validate(List<? extends CharSequence> ids) {
+        return validate(ids, defaultPool());
+    }
+
+    /**
+     * 在指定线程池中并行校验
+     *
+     * @param ids 号码列表，元素可以为null(按长度不正确处理)
+     * @param pool 执行校验的线程池
+     */
+    public static Result validate(List<? extends CharSequence> ids, ForkJoinPool pool) {
+        if (!(ids instanceof RandomAccess)) {
+            // LinkedList等按下标访问很慢，先复制为数组
+            return validate(ids.toArray(new CharSequence[ids.size()]), pool);
+        }
+        return run(new ListSource(ids), ids.size(), pool);
+    }
+
+    /**
+     * 使用默认线程池并行校验
+     *
+     * @param ids 号码数组，元素可以为null(按长度不正确处理)
+     */
+    public static Result validate(CharSequence[] ids) {
+        return validate(ids, defaultPool());
+    }
+
+    /**
+     * 在指定线程池中并行校验
+     *
+     * @param ids 号码数组，元素可以为null(按长度不正确处理)
+     * @param pool 执行校验的线程池
+     */
+    public static Result validate(CharSequence[] ids, ForkJoinPool pool) {
+        return run(new ArraySource(ids), ids.length, pool);
+    }
+
+    private static Result run(Source source, int size, ForkJoinPool pool) {
+        byte[] codes = new byte[size];
+        long[] validWords = new long[(size + 63) >>> 6];
+        if (size > 0) {
+            ValidateTask task = new ValidateTask(source, codes, validWords, 0, size);
+            if (size <= LEAF_SIZE) {
+                task.compute();// 数据量小时直接在当前线程校验
+            } else {
+                pool.invoke(task);
+            }
+        }
+        return new Result(BitSet.valueOf(validWords), codes);
+    }
+
+    /**
+     * 按下标读取号码
+     */
+    private interface Source {
+        CharSequence get(int index);
+    }
+
+    private static final class ListSource implements Source {
+        private final List<? extends CharSequence> list;
+
+        ListSource(List<? extends CharSequence> list) {
+            this.list = list;
+        }
+
+        @Override
+        public CharSequence get(int index) {
+            return list.get(index);
+        }
+    }
+
+    private static final class ArraySource implements Source {
+        private final CharSequence[] array;
+
+        ArraySource(CharSequence[] array) {
+            this.array = array;
+        }
+
+        @Override
+        public CharSequence get(int index) {
+            return array[index];
+        }
+    }
+
+    /**
+     * 校验[start, end)区间，超过{@link #LEAF_SIZE}时在64对齐的中点二分
+     */
+    private static final class ValidateTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final Source source;
+        private final byte[] codes;
+        private final long[] validWords;
+        private final int start;
+        private final int end;
+
+        ValidateTask(Source source, byte[] codes, long[] validWords, int start, int end) {
+            this.source = source;
+            this.codes = codes;
+            this.validWords = validWords;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected void compute() {
+            if (end - start <= LEAF_SIZE) {
+                validateRange();
+                return;
+            }
+            int mid = (start + ((end - start) >>> 1)) & ~63;
+            invokeAll(new ValidateTask(source, codes, validWords, start, mid),
+                    new ValidateTask(source, codes, validWords, mid, end));
+        }
+
+        private void validateRange() {
+            // start总是64的倍数，本任务独占[start/64, (end+63)/64)范围内的long字
+            long word = 0;
+            for (int i = start; i < end; i++) {
+                int code = IDCardValidator.validate(source.get(i));
+                codes[i] = (byte) code;
+                if (code == IDCardValidator.VALID) {
+                    word |= 1L << i;// 移位数只取低6位
+                }
+                if ((i & 63) == 63 || i == end - 1) {
+                    validWords[i >>> 6] = word;
+                    word = 0;
+                }
+            }
+        }
+    }
+
+    /**
+     * 批量校验结果
+     */
+    public static final class Result {
+        private final BitSet valid;
+        private final byte[] codes;
+        private final int validCount;
+
+        Result(BitSet valid, byte[] codes) {
+            this.valid = valid;
+            this.codes = codes;
+            this.validCount = valid.cardinality();
+        }
+
+        /**
+         * 校验的行数
+         */
+        public int size() {
+            return codes.length;
+        }
+
+        /**
+         * 第index行是否合法
+         */
+        public boolean isValid(int index) {
+            return codes[index] == IDCardValidator.VALID;
+        }
+
+        /**
+         * 第index行的结果码，取值同{@link IDCardValidator}的VALID/INVALID_*
+         */
+        public int getCode(int index) {
+            return codes[index];
+        }
+
+        /**
+         * 合法行的集合(不复制，不要修改)
+         */
+        public BitSet getValid() {
+            return valid;
+        }
+
+        /**
+         * 每行的结果码(不复制，不要修改)
+         */
+        public byte[] getCodes() {
+            return codes;
+        }
+
+        public int getValidCount() {
+            return validCount;
+        }
+
+        public int getInvalidCount() {
+            return codes.length - validCount;
+        }
+    }
+}
@@ -1,9 +1,5 @@
 package com.suwec.framework.utils;
 
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
-import java.util.Calendar;
-import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -34,6 +30,10 @@ public class IDCardValidateTool {
     public static final String verifyCode[] = {
             "1", "0", "X", "9", "8", "7", "6", "5", "4", "3", "2"
     };
+    /** getCheckCode18按余数返回的校验位(沿用小写x) */
+    private static final String[] CHECK_CODES = {
+            "1", "0", "x", "9", "8", "7", "6", "5", "4", "3", "2"
+    };
     /** 最低年限 */
     public static final int MIN = 1930;
     public static Map<String, String> cityCodes = new HashMap<String, String>();
@@ -123,91 +123,41 @@ public class IDCardValidateTool {
      * @return 18位身份编码
      */
     public static String conver15CardTo18(String idCard) {
-        String idCard18 = "";
-        if (idCard.length() != CHINA_ID_MIN_LENGTH) {
+        if (idCard.length() != CHINA_ID_MIN_LENGTH || !IDCardValidator.isDigits(idCard, 0, CHINA_ID_MIN_LENGTH)) {
             return null;
         }
-        if (isNum(idCard)) {
-            // 获取出生年月日
-            String birthday = idCard.substring(6, 12);
-            Date birthDate = null;
-            try {
-                birthDate = new SimpleDateFormat("yyMMdd").parse(birthday);
-            } catch (ParseException e) {
-                e.printStackTrace();
-            }
-            Calendar cal = Calendar.getInstance();
-            if (birthDate != null)
-                cal.setTime(birthDate);
-            // 获取出生年(完全表现形式,如：2010)
-            String sYear = String.valueOf(cal.get(Calendar.YEAR));
-            idCard18 = idCard.substring(0, 6) + sYear + idCard.substring(8);
-            // 转换字符数组
-            char[] cArr = idCard18.toCharArray();
-            if (cArr != null) {
-                int[] iCard = converCharToInt(cArr);
-                int iSum17 = getPowerSum(iCard);
-                // 获取校验位
-                String sVal = getCheckCode18(iSum17);
-                if (sVal.length() > 0) {
-                    idCard18 += sVal;
-                } else {
-                    return null;
-                }
-            }
-        } else {
-            return null;
+        // 地区(6位) + 四位出生年 + 原号码第9位起的月日和顺序码(7位) + 校验位，全部按字符计算，不经过日期格式化
+        char[] card = new char[CHINA_ID_MAX_LENGTH];
+        idCard.getChars(0, 6, card, 0);
+        int year = IdCardDates.expandFifteenDigitYear(IDCardValidator.parseDigits(idCard, 6, 2));
+        card[6] = (char) ('0' + year / 1000);
+        card[7] = (char) ('0' + year / 100 % 10);
+        idCard.getChars(6, CHINA_ID_MIN_LENGTH, card, 8);
+        int sum = 0;
+        for (int i = 0; i < CHINA_ID_MAX_LENGTH - 1; i++) {
+            sum += (card[i] - '0') * power[i];
         }
-        return idCard18;
+        card[CHINA_ID_MAX_LENGTH - 1] = getCheckCode18(sum).charAt(0);
+        return new String(card);
     }
  
     /**
      * 验证身份证是否合法
      */
     public static boolean validateCard(String idCard) {
-        String card = idCard.trim();
-        if (validateIdCard18(card)) {
-            return true;
-        }
-        if (validateIdCard15(card)) {
-            return true;
-        }
-        String[] cardval = validateIdCard10(card);
-        if (cardval != null) {
-            return cardval[2].equals("true");
-        }
-        return false;
+        // 按长度直接选择规则，不再依次尝试18位、15位和多个正则；批量校验见IDCardBulkValidator
+        return IDCardValidator.validate(idCard) == IDCardValidator.VALID;
     }
  
     /**
-     * 验证18位身份编码是否合法
+     * 验证18位身份编码是否合法(校验码和出生日期)
      * 
      * @param idCard 身份编码
      * @return 是否合法
      */
     public static boolean validateIdCard18(String idCard) {
-        boolean bTrue = false;
-        if (idCard.length() == CHINA_ID_MAX_LENGTH) {
-            // 前17位
-            String code17 = idCard.substring(0, 17);
-            // 第18位
-            String code18 = idCard.substring(17, CHINA_ID_MAX_LENGTH);
-            if (isNum(code17)) {
-                char[] cArr = code17.toCharArray();
-                if (cArr != null) {
-                    int[] iCard = converCharToInt(cArr);
-                    int iSum17 = getPowerSum(iCard);
-                    // 获取校验位
-                    String val = getCheckCode18(iSum17);
-                    if (val.length() > 0) {
-                        if (val.equalsIgnoreCase(code18)) {
-                            bTrue = true;
-                        }
-                    }
-                }
-            }
-        }
-        return bTrue;
+        // 直接在原字符串上一次遍历校验，不再截取子串和转换数组
+        return IDCardValidator.validate18(idCard) == IDCardValidator.VALID;
     }
  
     /**
@@ -218,29 +168,7 @@ public class IDCardValidateTool {
      * @return 是否合法
      */
     public static boolean validateIdCard15(String idCard) {
-        if (idCard.length() != CHINA_ID_MIN_LENGTH) {
-            return false;
-        }
-        if (isNum(idCard)) {
-            String proCode = idCard.substring(0, 2);
-            if (cityCodes.get(proCode) == null) {
-                return false;
-            }
-            String birthCode = idCard.substring(6, 12);
-            Date birthDate = null;
-            try {
-                birthDate = new SimpleDateFormat("yy").parse(birthCode.substring(0, 2));
-            } catch (ParseException e) {
-                e.printStackTrace();
-            }
-            Calendar cal = Calendar.getInstance();
-            if (birthDate != null)
-                cal.setTime(birthDate);
-            return valiDate(cal.get(Calendar.YEAR), Integer.valueOf(birthCode.substring(2, 4)),
-                    Integer.valueOf(birthCode.substring(4, 6)));
-        } else {
-            return false;
-        }
+        return IDCardValidator.validate15(idCard, 0, idCard.length()) == IDCardValidator.VALID;
     }
  
     /**
@@ -360,12 +288,12 @@ public class IDCardValidateTool {
     public static int[] converCharToInt(char[] ca) {
         int len = ca.length;
         int[] iArr = new int[len];
-        try {
-            for (int i = 0; i < len; i++) {
-                iArr[i] = Integer.parseInt(String.valueOf(ca[i]));
+        for (int i = 0; i < len; i++) {
+            int digit = ca[i] - '0';
+            if (digit < 0 || digit > 9) {
+                break;// 遇到非数字时停止，其余位保持0
             }
-        } catch (NumberFormatException e) {
-            e.printStackTrace();
+            iArr[i] = digit;
         }
         return iArr;
     }
@@ -377,17 +305,10 @@ public class IDCardValidateTool {
      * @return 身份证编码。
      */
     public static int getPowerSum(int[] iArr) {
-        int iSum = 0;
-        if (power.length == iArr.length) {
-            for (int i = 0; i < iArr.length; i++) {
-                for (int j = 0; j < power.length; j++) {
-                    if (i == j) {
-                        iSum = iSum + iArr[i] * power[j];
-                    }
-                }
-            }
+        if (power.length != iArr.length) {
+            return 0;
         }
-        return iSum;
+        return IDCardValidator.weightedSum(iArr);
     }
  
     /**
@@ -397,43 +318,10 @@ public class IDCardValidateTool {
      * @return 校验位
      */
     public static String getCheckCode18(int iSum) {
-        String sCode = "";
-        switch (iSum % 11) {
-        case 10:
-            sCode = "2";
-            break;
-        case 9:
-            sCode = "3";
-            break;
-        case 8:
-            sCode = "4";
-            break;
-        case 7:
-            sCode = "5";
-            break;
-        case 6:
-            sCode = "6";
-            break;
-        case 5:
-            sCode = "7";
-            break;
-        case 4:
-            sCode = "8";
-            break;
-        case 3:
-            sCode = "9";
-            break;
-        case 2:
-            sCode = "x";
-            break;
-        case 1:
-            sCode = "0";
-            break;
-        case 0:
-            sCode = "1";
-            break;
+        if (iSum < 0) {
+            return "";
         }
-        return sCode;
+        return CHECK_CODES[iSum % 11];
     }
  
     /**
@@ -442,16 +330,15 @@ public class IDCardValidateTool {
      * @param idCard
      *            身份编号
      * @return 年龄
+     * @see IdCardInfo#parse(CharSequence) 需要多个字段时一次解析
      */
     public static int getAgeByIdCard(String idCard) {
         int iAge = 0;
         if (idCard.length() == CHINA_ID_MIN_LENGTH) {
             idCard = conver15CardTo18(idCard);
         }
-        String year = idCard.substring(6, 10);
-        Calendar cal = Calendar.getInstance();
-        int iCurrYear = cal.get(Calendar.YEAR);
-        iAge = iCurrYear - Integer.valueOf(year);
+        int iCurrYear = IdCardDates.currentYear();
+        iAge = iCurrYear - IDCardValidator.parseDigits(idCard, 6, 4);
         return iAge;
     }
  
@@ -460,6 +347,7 @@ public class IDCardValidateTool {
      * 
      * @param idCard 身份编号
      * @return 生日(yyyyMMdd)
+     * @see IdCardInfo#parse(CharSequence) 需要多个字段时一次解析
      */
     public static String getBirthByIdCard(String idCard) {
         Integer len = idCard.length();
@@ -526,6 +414,7 @@ public class IDCardValidateTool {
      * 
      * @param idCard 身份编号
      * @return 性别(M-男，F-女，N-未知)
+     * @see IdCardInfo#parse(CharSequence) 需要多个字段时一次解析
      */
     public static String getGenderByIdCard(String idCard) {
         String sGender = "N";
@@ -546,16 +435,15 @@ public class IDCardValidateTool {
      * 
      * @param idCard 身份编码
      * @return 省级编码。
+     * @see IdCardInfo#parse(CharSequence) 需要多个字段时一次解析
      */
     public static String getProvinceByIdCard(String idCard) {
         int len = idCard.length();
-        String sProvince = null;
-        String sProvinNum = "";
-        if (len == CHINA_ID_MIN_LENGTH || len == CHINA_ID_MAX_LENGTH) {
-            sProvinNum = idCard.substring(0, 2);
+        if ((len != CHINA_ID_MIN_LENGTH && len != CHINA_ID_MAX_LENGTH) || !IDCardValidator.isDigits(idCard, 0, 2)) {
+            return null;
         }
-        sProvince = cityCodes.get(sProvinNum);
-        return sProvince;
+        // 在代码表中二分查找省级代码，名称字符串由代码表缓存
+        return RegionCodeTable.get().getName(IDCardValidator.parseDigits(idCard, 0, 2) * 10000);
     }
  
     /**
@@ -580,30 +468,7 @@ public class IDCardValidateTool {
      * @return 是否有效
      */
     public static boolean valiDate(int iYear, int iMonth, int iDate) {
-        Calendar cal = Calendar.getInstance();
-        int year = cal.get(Calendar.YEAR);
-        int datePerMonth;
-        if (iYear < MIN || iYear >= year) {
-            return false;
-        }
-        if (iMonth < 1 || iMonth > 12) {
-            return false;
-        }
-        switch (iMonth) {
-        case 4:
-        case 6:
-        case 9:
-        case 11:
-            datePerMonth = 30;
-            break;
-        case 2:
-            boolean dm = ((iYear % 4 == 0 && iYear % 100 != 0) || (iYear % 400 == 0))
-                    && (iYear > MIN && iYear < year);
-            datePerMonth = dm ? 29 : 28;
-            break;
-        default:
-            datePerMonth = 31;
-        }
-        return (iDate >= 1) && (iDate <= datePerMonth);
+        // 当前年份每天只计算一次，月份天数查表，不再创建Calendar
+        return IdCardDates.isValidBirthDate(iYear, iMonth, iDate);
     }
 }
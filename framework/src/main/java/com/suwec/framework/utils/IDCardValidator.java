@@ -0,0 +1,370 @@
+package com.suwec.framework.utils;
+
+/**
+ * 身份证号码校验(不分配对象)
+ * <p>
+ * 直接在CharSequence、char[]或ASCII字节数组的指定范围上一次遍历完成校验，按加权因子表计算加权和，
+ * 按校验码表比较第18位，不创建子串、不使用正则、不装箱，结果以int返回，适合输入时逐字校验和批量导入。
+ * {@link #validate(CharSequence)}与IDCardValidateTool.validateCard规则相同，同时支持15位、香港、台湾和澳门证件。
+ * </p>
+ * 用法：
+ * <pre>
+ * if (IDCardValidator.validate18(editable) == IDCardValidator.VALID) {
+ *     ...
+ * }
+ * </pre>
+ */
+public final class IDCardValidator {
+
+    /** 合法 */
+    public static final int VALID = 0;
+    /** 长度不正确(或为null) */
+    public static final int INVALID_LENGTH = 1;
+    /** 前17位含非数字，或第18位不是数字和X */
+    public static final int INVALID_CHARACTER = 2;
+    /** 第18位校验码不符(香港、台湾证件为校验位不符) */
+    public static final int INVALID_CHECK_CODE = 3;
+    /** 省级代码(前两位)不存在，只用于15位号码 */
+    public static final int INVALID_REGION = 4;
+    /** 出生日期不存在或超出范围 */
+    public static final int INVALID_BIRTH_DATE = 5;
+    /** 不符合任何一种证件格式 */
+    public static final int INVALID_FORMAT = 6;
+
+    /** 18位身份证号码长度 */
+    static final int ID_LENGTH = 18;
+    /** 15位身份证号码长度 */
+    static final int ID_LENGTH_15 = 15;
+
+    /** 10位证件格式：台湾(1字母+9数字) */
+    static final int FORMAT_TAIWAN = 1;
+    /** 10位证件格式：香港(1-2字母+6数字+校验位，校验位可带括号) */
+    static final int FORMAT_HONG_KONG = 2;
+    /** 10位证件格式：澳门(1/5/7开头的7位数字+校验位，校验位可带括号) */
+    static final int FORMAT_MACAU = 3;
+
+    /** 前17位的加权因子 */
+    private static final int[] WEIGHTS = {
+            7, 9, 10, 5, 8, 4, 2, 1, 6, 3, 7, 9, 10, 5, 8, 4, 2
+    };
+
+    /** 加权和对11取模后对应的校验码 */
+    private static final char[] CHECK_CODES = {
+            '1', '0', 'X', '9', '8', '7', '6', '5', '4', '3', '2'
+    };
+
+    /** 台湾身份证首字母A-Z对应的数字 */
+    private static final byte[] TW_LETTER_CODES = {
+            10, 11, 12, 13, 14, 15, 16, 17, 34, 18, 19, 20, 21, 22, 35, 23, 24, 25, 26, 27, 28, 29, 32, 30, 31, 33
+    };
+
+    private IDCardValidator() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * 校验身份证号码(首尾空白会被忽略)：18位校验校验码和出生日期，15位校验省级代码和出生日期，
+     * 香港、台湾校验校验位，澳门只校验格式。与{@link IdCardInfo#parse(CharSequence)}的判断一致
+     *
+     * @param id 身份证号码
+     * @return 结果码，{@link #VALID}表示合法
+     */
+    public static int validate(CharSequence id) {
+        if (id == null) {
+            return INVALID_LENGTH;
+        }
+        int start = 0;
+        int end = id.length();
+        while (start < end && id.charAt(start) <= ' ') {
+            start++;
+        }
+        while (end > start && id.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        switch (end - start) {
+        case ID_LENGTH:
+            return validate18(id, start, end);
+        case ID_LENGTH_15:
+            return validate15(id, start, end);
+        default:
+            return validateTenDigit(id, start, end);
+        }
+    }
+
+    /**
+     * 校验18位身份证号码：前17位为数字，第18位校验码正确，出生日期存在且不晚于今天(18位号码含四位年份，不限制年份范围)。
+     * 代码表只收录了省级代码，不足以判断地区代码，所以不检查地区(与原validateIdCard18相同)
+     *
+     * @param id 身份证号码，可以是String、StringBuilder、Editable等
+     * @return 结果码，{@link #VALID}表示合法
+     */
+    public static int validate18(CharSequence id) {
+        if (id == null) {
+            return INVALID_LENGTH;
+        }
+        return validate18(id, 0, id.length());
+    }
+
+    /**
+     * 校验id中[start, end)范围内的18位身份证号码
+     *
+     * @return 结果码，{@link #VALID}表示合法
+     */
+    public static int validate18(CharSequence id, int start, int end) {
+        if (end - start != ID_LENGTH) {
+            return INVALID_LENGTH;
+        }
+        int sum = 0;
+        int birth = 0;
+        for (int i = 0; i < ID_LENGTH - 1; i++) {
+            int digit = id.charAt(start + i) - '0';
+            if (digit < 0 || digit > 9) {
+                return INVALID_CHARACTER;
+            }
+            sum += digit * WEIGHTS[i];
+            if (i >= 6 && i < 14) {
+                birth = birth * 10 + digit;
+            }
+        }
+        return checkLast(sum, id.charAt(start + ID_LENGTH - 1), birth);
+    }
+
+    /**
+     * 校验字符数组中从off开始、长度为len的18位身份证号码
+     *
+     * @return 结果码，{@link #VALID}表示合法
+     */
+    public static int validate18(char[] id, int off, int len) {
+        if (len != ID_LENGTH) {
+            return INVALID_LENGTH;
+        }
+        int sum = 0;
+        int birth = 0;
+        for (int i = 0; i < ID_LENGTH - 1; i++) {
+            int digit = id[off + i] - '0';
+            if (digit < 0 || digit > 9) {
+                return INVALID_CHARACTER;
+            }
+            sum += digit * WEIGHTS[i];
+            if (i >= 6 && i < 14) {
+                birth = birth * 10 + digit;
+            }
+        }
+        return checkLast(sum, id[off + ID_LENGTH - 1], birth);
+    }
+
+    /**
+     * 校验ASCII字节数组(如从文件或网络读取的原始数据)中从off开始、长度为len的18位身份证号码
+     *
+     * @return 结果码，{@link #VALID}表示合法
+     */
+    public static int validate18(byte[] id, int off, int len) {
+        if (len != ID_LENGTH) {
+            return INVALID_LENGTH;
+        }
+        int sum = 0;
+        int birth = 0;
+        for (int i = 0; i < ID_LENGTH - 1; i++) {
+            int digit = id[off + i] - '0';
+            if (digit < 0 || digit > 9) {
+                return INVALID_CHARACTER;
+            }
+            sum += digit * WEIGHTS[i];
+            if (i >= 6 && i < 14) {
+                birth = birth * 10 + digit;
+            }
+        }
+        return checkLast(sum, (char) (id[off + ID_LENGTH - 1] & 0xff), birth);
+    }
+
+    /**
+     * 校验id中[start, end)范围内的15位身份证号码：全部为数字，省份存在，出生日期(19yyMMdd)存在且在1930年至去年之间
+     *
+     * @return 结果码，{@link #VALID}表示合法
+     */
+    public static int validate15(CharSequence id, int start, int end) {
+        if (end - start != ID_LENGTH_15) {
+            return INVALID_LENGTH;
+        }
+        if (!isDigits(id, start, end)) {
+            return INVALID_CHARACTER;
+        }
+        if (!isRegion(parseDigits(id, start, 6))) {
+            return INVALID_REGION;
+        }
+        int year = IdCardDates.expandFifteenDigitYear(parseDigits(id, start + 6, 2));
+        if (!IdCardDates.isValidBirthDate(year, parseDigits(id, start + 8, 2), parseDigits(id, start + 10, 2))) {
+            return INVALID_BIRTH_DATE;
+        }
+        return VALID;
+    }
+
+    /**
+     * 校验id中[start, end)范围内的香港、台湾或澳门证件号码
+     *
+     * @return 结果码，{@link #VALID}表示合法
+     */
+    public static int validateTenDigit(CharSequence id, int start, int end) {
+        int length = end - start;
+        if (length < 8 || length > 11) {
+            return INVALID_LENGTH;
+        }
+        switch (tenDigitFormat(id, start, end)) {
+        case FORMAT_TAIWAN:
+            return checkTaiwan(id, start);
+        case FORMAT_HONG_KONG:
+            return checkHongKong(id, start, end);
+        case FORMAT_MACAU:
+            return VALID;// 澳门证件没有公开的校验规则，只校验格式
+        default:
+            return INVALID_FORMAT;
+        }
+    }
+
+    /**
+     * 判断香港、台湾、澳门证件的格式
+     *
+     * @return FORMAT_*，不符合任何格式时返回0
+     */
+    static int tenDigitFormat(CharSequence id, int start, int end) {
+        int length = end - start;
+        if (length < 8 || length > 11) {
+            return 0;
+        }
+        char first = upper(id.charAt(start));
+        boolean letter = first >= 'A' && first <= 'Z';
+        if (length == 10 && letter && isDigits(id, start + 1, end)) {
+            return FORMAT_TAIWAN;
+        }
+        // 校验位两侧的括号只能成对出现在末尾
+        int bodyEnd = end - 1;
+        char check = upper(id.charAt(end - 1));
+        if (check == ')') {
+            if (length < 10 || id.charAt(end - 3) != '(') {
+                return 0;
+            }
+            bodyEnd = end - 3;
+            check = upper(id.charAt(end - 2));
+        }
+        if (letter) {
+            char second = upper(id.charAt(start + 1));
+            int digitsStart = start + (second >= 'A' && second <= 'Z' ? 2 : 1);
+            if (bodyEnd - digitsStart == 6 && isDigits(id, digitsStart, bodyEnd)
+                    && (check == 'A' || (check >= '0' && check <= '9'))) {
+                return FORMAT_HONG_KONG;
+            }
+        } else if ((first == '1' || first == '5' || first == '7') && bodyEnd - start == 7
+                && isDigits(id, start, bodyEnd) && ((check >= '0' && check <= '9') || (check >= 'A' && check <= 'Z'))) {
+            return FORMAT_MACAU;
+        }
+        return 0;
+    }
+
+    /**
+     * 台湾身份证：首字母对应的两位数字分别乘1和9，其后8位依次乘8-1，加上校验位后能被10整除；第2位为性别(1男2女)
+     */
+    private static int checkTaiwan(CharSequence id, int start) {
+        int genderDigit = id.charAt(start + 1) - '0';
+        if (genderDigit != 1 && genderDigit != 2) {
+            return INVALID_CHARACTER;
+        }
+        int code = TW_LETTER_CODES[upper(id.charAt(start)) - 'A'];
+        int sum = code / 10 + (code % 10) * 9;
+        for (int i = 1; i <= 8; i++) {
+            sum += (id.charAt(start + i) - '0') * (9 - i);
+        }
+        int check = id.charAt(start + 9) - '0';
+        return (sum % 10 == 0 ? 0 : 10 - sum % 10) == check ? VALID : INVALID_CHECK_CODE;
+    }
+
+    /**
+     * 香港身份证：字母A-Z对应10-35，只有一个字母时前面补空格(对应58)，按权9-1相加(校验位A为10)后能被11整除
+     */
+    private static int checkHongKong(CharSequence id, int start, int end) {
+        boolean bracketed = id.charAt(end - 1) == ')';
+        int bodyEnd = bracketed ? end - 3 : end - 1;
+        char check = upper(id.charAt(bracketed ? end - 2 : end - 1));
+        int first = upper(id.charAt(start)) - 55;
+        char second = upper(id.charAt(start + 1));
+        boolean twoLetters = second >= 'A' && second <= 'Z';
+        int sum = twoLetters ? first * 9 + (second - 55) * 8 : 58 * 9 + first * 8;
+        int digitsStart = start + (twoLetters ? 2 : 1);
+        for (int i = digitsStart; i < bodyEnd; i++) {
+            sum += (id.charAt(i) - '0') * (7 - (i - digitsStart));
+        }
+        sum += check == 'A' ? 10 : check - '0';
+        return sum % 11 == 0 ? VALID : INVALID_CHECK_CODE;
+    }
+
+    /**
+     * 六位地区代码的省级部分(前两位)是否存在。代码表只收录了省级代码，不检查市、县级代码
+     */
+    static boolean isRegion(int code) {
+        return RegionCodeTable.get().isProvince(code / 10000);
+    }
+
+    static boolean isDigits(CharSequence id, int start, int end) {
+        for (int i = start; i < end; i++) {
+            char c = id.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 读取从start开始的count位数字(调用前已确认都是数字)
+     */
+    static int parseDigits(CharSequence id, int start, int count) {
+        int value = 0;
+        for (int i = start; i < start + count; i++) {
+            value = value * 10 + (id.charAt(i) - '0');
+        }
+        return value;
+    }
+
+    static char upper(char c) {
+        return c >= 'a' && c <= 'z' ? (char) (c - 'a' + 'A') : c;
+    }
+
+    /**
+     * 比较第18位与按加权和算出的校验码(X不区分大小写)，再检查出生日期
+     *
+     * @param birth 第7-14位，yyyyMMdd
+     */
+    private static int checkLast(int sum, char last, int birth) {
+        if (last == 'x') {
+            last = 'X';
+        } else if ((last < '0' || last > '9') && last != 'X') {
+            return INVALID_CHARACTER;
+        }
+        if (last != CHECK_CODES[sum % 11]) {
+            return INVALID_CHECK_CODE;
+        }
+        if (!IdCardDates.isValidFullBirthDate(birth / 10000, birth / 100 % 100, birth % 100)) {
+            return INVALID_BIRTH_DATE;
+        }
+        return VALID;
+    }
+
+    /**
+     * 前17位的加权和
+     *
+     * @param digits 至少17个数字(0-9)
+     */
+    static int weightedSum(int[] digits) {
+        int sum = 0;
+        for (int i = 0; i < ID_LENGTH - 1; i++) {
+            sum += digits[i] * WEIGHTS[i];
+        }
+        return sum;
+    }
+
+    /**
+     * 加权和对应的校验码(大写X)
+     */
+    static char checkCode(int sum) {
+        return CHECK_CODES[sum % 11];
+    }
+}
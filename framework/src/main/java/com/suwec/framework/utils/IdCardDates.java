@@ -0,0 +1,162 @@
+package com.suwec.framework.utils;
+
+import java.util.TimeZone;
+
+/**
+ * 身份证出生日期的整数运算(不使用Calendar和SimpleDateFormat)
+ * <p>
+ * 日期以距1970-01-01的天数(epoch day)表示，与java.time.LocalDate.toEpochDay()相同。
+ * </p>
+ */
+final class IdCardDates {
+
+    /** 一天的毫秒数 */
+    static final long MILLIS_PER_DAY = 24L * 60 * 60 * 1000;
+
+    /** 两位年份的分界：两位年份yy解释为[PIVOT - 100, PIVOT)中的年份。15位号码只在2000年前签发 */
+    static final int TWO_DIGIT_YEAR_PIVOT = 2000;
+
+    /** 平年每月天数，下标为月份(1-12) */
+    private static final byte[] DAYS_IN_MONTH = {
+            0, 31, 28, 31, 30, 31, 30, 31, 31, 30, 31, 30, 31
+    };
+
+    private IdCardDates() {
+        throw new UnsupportedOperationException();
+    }
+
+    static boolean isLeapYear(int year) {
+        return (year & 3) == 0 && (year % 100 != 0 || year % 400 == 0);
+    }
+
+    /**
+     * 某月的天数
+     *
+     * @param month 1-12
+     */
+    static int daysInMonth(int year, int month) {
+        return month == 2 && isLeapYear(year) ? 29 : DAYS_IN_MONTH[month];
+    }
+
+    /**
+     * 年月日是否是存在的日期
+     */
+    static boolean isValidDate(int year, int month, int day) {
+        return month >= 1 && month <= 12 && day >= 1 && day <= daysInMonth(year, month);
+    }
+
+    /**
+     * 15位身份证的两位年份转为四位年份(按{@link #TWO_DIGIT_YEAR_PIVOT}，持有人都出生于19xx年)
+     */
+    static int expandFifteenDigitYear(int twoDigitYear) {
+        int year = TWO_DIGIT_YEAR_PIVOT / 100 * 100 + twoDigitYear;
+        return year >= TWO_DIGIT_YEAR_PIVOT ? year - 100 : year;
+    }
+
+    /**
+     * 15位身份证的出生日期是否有效：日期存在，年份不早于{@link IDCardValidateTool#MIN}且早于当前年份
+     */
+    static boolean isValidBirthDate(int year, int month, int day) {
+        return year >= IDCardValidateTool.MIN && year < currentYear() && isValidDate(year, month, day);
+    }
+
+    /**
+     * 18位身份证的出生日期是否有效：日期存在且不晚于今天(18位号码含四位年份，不限制年份范围)
+     */
+    static boolean isValidFullBirthDate(int year, int month, int day) {
+        return isValidDate(year, month, day) && toEpochDay(year, month, day) <= today();
+    }
+
+    /** 缓存的当天日期，到下一个零点(默认时区)失效 */
+    private static volatile CachedDay sCachedDay;
+
+    /**
+     * 当前年份(默认时区)。每天最多重新计算一次
+     */
+    static int currentYear() {
+        return cachedDay().year;
+    }
+
+    /**
+     * 今天(默认时区)的epoch day。每天最多重新计算一次
+     */
+    static int today() {
+        return cachedDay().epochDay;
+    }
+
+    private static CachedDay cachedDay() {
+        long now = System.currentTimeMillis();
+        CachedDay cached = sCachedDay;
+        if (cached == null || now >= cached.expiresAt || now < cached.computedAt) {
+            int today = epochDayOf(now);
+            long nextMidnight = (today + 1L) * MILLIS_PER_DAY - TimeZone.getDefault().getOffset(now);
+            cached = new CachedDay(today, toYearMonthDay(today) / 10000, now, nextMidnight);
+            sCachedDay = cached;
+        }
+        return cached;
+    }
+
+    private static final class CachedDay {
+        final int epochDay;
+        final int year;
+        final long computedAt;
+        final long expiresAt;
+
+        CachedDay(int epochDay, int year, long computedAt, long expiresAt) {
+            this.epochDay = epochDay;
+            this.year = year;
+            this.computedAt = computedAt;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    /**
+     * 年月日转为epoch day
+     */
+    static int toEpochDay(int year, int month, int day) {
+        int y = month <= 2 ? year - 1 : year;
+        int era = (y >= 0 ? y : y - 399) / 400;
+        int yearOfEra = y - era * 400;
+        int dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+        int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097 + dayOfEra - 719468;
+    }
+
+    /**
+     * epoch day转为yyyyMMdd形式的整数
+     */
+    static int toYearMonthDay(int epochDay) {
+        int z = epochDay + 719468;
+        int era = (z >= 0 ? z : z - 146096) / 146097;
+        int dayOfEra = z - era * 146097;
+        int yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        int dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        int mp = (5 * dayOfYear + 2) / 153;
+        int day = dayOfYear - (153 * mp + 2) / 5 + 1;
+        int month = mp < 10 ? mp + 3 : mp - 9;
+        int year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+        return year * 10000 + month * 100 + day;
+    }
+
+    /**
+     * 指定时刻在默认时区的epoch day
+     */
+    static int epochDayOf(long millis) {
+        long local = millis + TimeZone.getDefault().getOffset(millis);
+        long day = local / MILLIS_PER_DAY;
+        if (local < 0 && day * MILLIS_PER_DAY != local) {
+            day--;
+        }
+        return (int) day;
+    }
+
+    /**
+     * 从出生日期到指定日期的周岁
+     */
+    static int age(int birthEpochDay, int todayEpochDay) {
+        int birth = toYearMonthDay(birthEpochDay);
+        int today = toYearMonthDay(todayEpochDay);
+        // yyyyMMdd相减后除以10000即为周岁(未到生日时月日部分为负，自动少一岁)
+        return (today - birth) / 10000;
+    }
+}
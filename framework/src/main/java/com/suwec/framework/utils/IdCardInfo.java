@@ -0,0 +1,260 @@
+package com.suwec.framework.utils;
+
+/**
+ * 身份证信息(不可变)
+ * <p>
+ * {@link #parse(CharSequence)}一次遍历完成校验并取出类型、出生日期、性别和地区代码，
+ * 代替依次调用getAgeByIdCard、getBirthByIdCard、getGenderByIdCard、getProvinceByIdCard
+ * (每次都重新解析，15位号码还要重新转换为18位)。出生日期以epoch day保存，年龄按解析时的时钟计算。
+ * </p>
+ * 用法：
+ * <pre>
+ * IdCardInfo info = IdCardInfo.parse(idCard);
+ * if (info != null) {
+ *     int age = info.getAge();
+ *     boolean male = info.getGender() == IdCardInfo.GENDER_MALE;
+ * }
+ * </pre>
+ */
+public final class IdCardInfo {
+
+    /** 大陆15位身份证 */
+    public static final int TYPE_MAINLAND_15 = 1;
+    /** 大陆18位身份证 */
+    public static final int TYPE_MAINLAND_18 = 2;
+    /** 香港身份证 */
+    public static final int TYPE_HONG_KONG = 3;
+    /** 台湾身份证 */
+    public static final int TYPE_TAIWAN = 4;
+    /** 澳门身份证 */
+    public static final int TYPE_MACAU = 5;
+
+    /** 性别未知(香港、澳门身份证不含性别) */
+    public static final int GENDER_UNKNOWN = 0;
+    public static final int GENDER_MALE = 1;
+    public static final int GENDER_FEMALE = 2;
+
+    /** 证件不含出生日期时{@link #getBirthEpochDay()}的返回值 */
+    public static final int NO_BIRTH_DATE = Integer.MIN_VALUE;
+
+    /** 香港、台湾、澳门的省级地区代码 */
+    private static final int REGION_TAIWAN = 710000;
+    private static final int REGION_HONG_KONG = 810000;
+    private static final int REGION_MACAU = 820000;
+
+    /**
+     * 时钟，可替换以便按指定日期计算年龄
+     */
+    public interface Clock {
+        /** 使用System.currentTimeMillis()的时钟 */
+        Clock SYSTEM = new Clock() {
+            @Override
+            public long currentTimeMillis() {
+                return System.currentTimeMillis();
+            }
+        };
+
+        long currentTimeMillis();
+    }
+
+    private final byte type;
+    private final byte gender;
+    private final int regionCode;
+    private final int birthEpochDay;
+    private final Clock clock;
+
+    private IdCardInfo(int type, int gender, int regionCode, int birthEpochDay, Clock clock) {
+        this.type = (byte) type;
+        this.gender = (byte) gender;
+        this.regionCode = regionCode;
+        this.birthEpochDay = birthEpochDay;
+        this.clock = clock;
+    }
+
+    /**
+     * 解析身份证号码，首尾空白会被忽略
+     *
+     * @param id 大陆15位/18位、香港、台湾或澳门身份证号码
+     * @return 身份证信息，号码不合法时返回null
+     */
+    public static IdCardInfo parse(CharSequence id) {
+        return parse(id, Clock.SYSTEM);
+    }
+
+    /**
+     * 解析身份证号码，年龄按clock计算。号码是否合法与{@link IDCardValidator#validate(CharSequence)}的结果相同
+     *
+     * @param id 大陆15位/18位、香港、台湾或澳门身份证号码
+     * @param clock 时钟
+     * @return 身份证信息，号码不合法时返回null
+     */
+    public static IdCardInfo parse(CharSequence id, Clock clock) {
+        if (id == null) {
+            return null;
+        }
+        int start = 0;
+        int end = id.length();
+        while (start < end && id.charAt(start) <= ' ') {
+            start++;
+        }
+        while (end > start && id.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        switch (end - start) {
+        case IDCardValidator.ID_LENGTH:
+            return parseMainland(id, start, true, clock);
+        case IDCardValidator.ID_LENGTH_15:
+            return parseMainland(id, start, false, clock);
+        default:
+            return parseTenDigit(id, start, end, clock);
+        }
+    }
+
+    /**
+     * 大陆身份证：地区(6位) + 出生日期(18位为yyyyMMdd，15位为yyMMdd) + 顺序码(奇数为男) + 校验码(仅18位)
+     */
+    private static IdCardInfo parseMainland(CharSequence id, int start, boolean eighteen, Clock clock) {
+        // 出生日期(15位号码还有省级代码)由校验器检查，与validate的结果一致
+        int code = eighteen ? IDCardValidator.validate18(id, start, start + IDCardValidator.ID_LENGTH)
+                : IDCardValidator.validate15(id, start, start + IDCardValidator.ID_LENGTH_15);
+        if (code != IDCardValidator.VALID) {
+            return null;
+        }
+        int regionCode = IDCardValidator.parseDigits(id, start, 6);
+        int year;
+        int pos = start + 6;
+        if (eighteen) {
+            year = IDCardValidator.parseDigits(id, pos, 4);
+            pos += 4;
+        } else {
+            year = IdCardDates.expandFifteenDigitYear(IDCardValidator.parseDigits(id, pos, 2));
+            pos += 2;
+        }
+        int month = IDCardValidator.parseDigits(id, pos, 2);
+        int day = IDCardValidator.parseDigits(id, pos + 2, 2);
+        int birthEpochDay = IdCardDates.toEpochDay(year, month, day);
+        int sequence = id.charAt(start + (eighteen ? 16 : 14)) - '0';
+        return new IdCardInfo(eighteen ? TYPE_MAINLAND_18 : TYPE_MAINLAND_15,
+                (sequence & 1) != 0 ? GENDER_MALE : GENDER_FEMALE, regionCode, birthEpochDay, clock);
+    }
+
+    /**
+     * 台湾、香港、澳门证件，校验规则见{@link IDCardValidator#validateTenDigit}
+     */
+    private static IdCardInfo parseTenDigit(CharSequence id, int start, int end, Clock clock) {
+        if (IDCardValidator.validateTenDigit(id, start, end) != IDCardValidator.VALID) {
+            return null;
+        }
+        switch (IDCardValidator.tenDigitFormat(id, start, end)) {
+        case IDCardValidator.FORMAT_TAIWAN:
+            // 第2位为性别(1男2女)
+            return new IdCardInfo(TYPE_TAIWAN, id.charAt(start + 1) == '1' ? GENDER_MALE : GENDER_FEMALE,
+                    REGION_TAIWAN, NO_BIRTH_DATE, clock);
+        case IDCardValidator.FORMAT_HONG_KONG:
+            return new IdCardInfo(TYPE_HONG_KONG, GENDER_UNKNOWN, REGION_HONG_KONG, NO_BIRTH_DATE, clock);
+        default:
+            return new IdCardInfo(TYPE_MACAU, GENDER_UNKNOWN, REGION_MACAU, NO_BIRTH_DATE, clock);
+        }
+    }
+
+    /**
+     * 证件类型，取值为TYPE_*
+     */
+    public int getType() {
+        return type;
+    }
+
+    /**
+     * 是否是大陆身份证(15位或18位)
+     */
+    public boolean isMainland() {
+        return type == TYPE_MAINLAND_15 || type == TYPE_MAINLAND_18;
+    }
+
+    /**
+     * 性别，取值为GENDER_*
+     */
+    public int getGender() {
+        return gender;
+    }
+
+    /**
+     * 六位地区代码(如110105)；香港、台湾、澳门为省级代码810000、710000、820000
+     */
+    public int getRegionCode() {
+        return regionCode;
+    }
+
+    /**
+     * 省级代码(地区代码前两位，如11)
+     */
+    public int getProvinceCode() {
+        return regionCode / 10000;
+    }
+
+    /**
+     * 是否含出生日期(只有大陆身份证含出生日期)
+     */
+    public boolean hasBirthDate() {
+        return birthEpochDay != NO_BIRTH_DATE;
+    }
+
+    /**
+     * 出生日期距1970-01-01的天数，不含出生日期时为{@link #NO_BIRTH_DATE}
+     */
+    public int getBirthEpochDay() {
+        return birthEpochDay;
+    }
+
+    /**
+     * 出生日期，yyyyMMdd形式的整数(如19491231)，不含出生日期时返回0
+     */
+    public int getBirthDate() {
+        return hasBirthDate() ? IdCardDates.toYearMonthDay(birthEpochDay) : 0;
+    }
+
+    /**
+     * 按解析时使用的时钟计算当前周岁，不含出生日期时返回-1
+     */
+    public int getAge() {
+        return getAge(clock);
+    }
+
+    /**
+     * 按指定时钟计算周岁，不含出生日期时返回-1
+     */
+    public int getAge(Clock clock) {
+        if (!hasBirthDate()) {
+            return -1;
+        }
+        return IdCardDates.age(birthEpochDay, IdCardDates.epochDayOf(clock.currentTimeMillis()));
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof IdCardInfo)) {
+            return false;
+        }
+        IdCardInfo other = (IdCardInfo) o;
+        return type == other.type && gender == other.gender && regionCode == other.regionCode
+                && birthEpochDay == other.birthEpochDay;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = type;
+        result = 31 * result + gender;
+        result = 31 * result + regionCode;
+        result = 31 * result + birthEpochDay;
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "IdCardInfo(type=" + type + ", gender=" + gender + ", region=" + regionCode + ", birth="
+                + getBirthDate() + ")";
+    }
+}
@@ -0,0 +1,319 @@
+package com.suwec.framework.utils;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * 图片文件头解析
+ * <p>
+ * 只读取文件开头的少量字节，得到JPEG/PNG/WebP/GIF的宽高、格式、EXIF方向和是否带透明通道，
+ * 不经过JNI，也不分配像素内存。JPEG中较大的段(如EXIF缩略图)通过skip跳过，不会读入内存。
+ * 纯Java实现，不依赖Android，可以直接在JVM上做基准测试。
+ * </p>
+ */
+public final class ImageHeaderParser {
+	/** 读取文件的缓冲区大小 */
+	private static final int FILE_BUFFER_SIZE = 8 * 1024;
+	/** EXIF段最多读取的字节数，方向标记在IFD0中，通常位于段的开头 */
+	private static final int EXIF_READ_LIMIT = 16 * 1024;
+	/** PNG在IDAT之前最多检查的块数 */
+	private static final int MAX_PNG_CHUNKS = 64;
+	private static final int TAG_ORIENTATION = 0x0112;
+	private static final int TYPE_SHORT = 3;
+
+	private static final ThreadLocal<byte[]> sExifBuffer = new ThreadLocal<byte[]>() {
+		@Override
+		protected byte[] initialValue() {
+			return new byte[EXIF_READ_LIMIT];
+		}
+	};
+
+	private ImageHeaderParser() {
+		/* cannot be instantiated */
+		throw new UnsupportedOperationException("cannot be instantiated");
+	}
+
+	/**
+	 * 解析图片文件
+	 *
+	 * @return 图片信息，不是支持的格式或文件头不完整时返回null
+	 * @throws IOException
+	 *             读取失败
+	 */
+	public static ImageInfo parse(File file) throws IOException {
+		InputStream in = new BufferedInputStream(new FileInputStream(file), FILE_BUFFER_SIZE);
+		try {
+			return parse(in);
+		} finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * 从流的当前位置解析图片，不关闭流
+	 *
+	 * @return 图片信息，不是支持的格式或文件头不完整时返回null
+	 * @throws IOException
+	 *             读取失败
+	 */
+	public static ImageInfo parse(InputStream in) throws IOException {
+		int b0 = in.read();
+		int b1 = in.read();
+		if (b0 == 0xFF && b1 == 0xD8) {
+			return parseJpeg(in);
+		} else if (b0 == 0x89 && b1 == 'P') {
+			return parsePng(in);
+		} else if (b0 == 'G' && b1 == 'I') {
+			return parseGif(in);
+		} else if (b0 == 'R' && b1 == 'I') {
+			return parseWebp(in);
+		}
+		return null;
+	}
+
+	/**
+	 * 逐个读取段，直到遇到SOF段(包含宽高)，途中解析APP1(EXIF)段中的方向标记
+	 */
+	private static ImageInfo parseJpeg(InputStream in) throws IOException {
+		byte[] buf = new byte[5];
+		int orientation = ImageInfo.ORIENTATION_NORMAL;
+		boolean exifParsed = false;
+		while (true) {
+			int marker = in.read();
+			if (marker != 0xFF) {
+				return null;
+			}
+			do {
+				marker = in.read();// 跳过填充的0xFF
+			} while (marker == 0xFF);
+			if (marker < 0 || marker == 0xD9 || marker == 0xDA) {
+				return null;// 到达图像数据或文件结尾仍没有SOF
+			}
+			if (marker == 0x01 || (marker >= 0xD0 && marker <= 0xD7)) {
+				continue;// 没有长度的标记
+			}
+			if (!readFully(in, buf, 0, 2)) {
+				return null;
+			}
+			int remaining = readUInt16(buf, 0, false) - 2;
+			if (remaining < 0) {
+				return null;
+			}
+			if (isStartOfFrame(marker)) {
+				if (!readFully(in, buf, 0, 5)) {
+					return null;
+				}
+				int height = readUInt16(buf, 1, false);
+				int width = readUInt16(buf, 3, false);
+				return new ImageInfo(width, height, "image/jpeg", orientation, false);
+			}
+			if (marker == 0xE1 && !exifParsed) {
+				byte[] exif = sExifBuffer.get();
+				int length = Math.min(remaining, exif.length);
+				if (!readFully(in, exif, 0, length)) {
+					return null;
+				}
+				remaining -= length;
+				int value = parseExifOrientation(exif, length);
+				if (value > 0) {
+					orientation = value;
+					exifParsed = true;
+				}
+			}
+			if (!skipFully(in, remaining)) {
+				return null;
+			}
+		}
+	}
+
+	/**
+	 * SOF0-SOF15，排除DHT(C4)、JPG(C8)、DAC(CC)
+	 */
+	private static boolean isStartOfFrame(int marker) {
+		return marker >= 0xC0 && marker <= 0xCF && marker != 0xC4 && marker != 0xC8 && marker != 0xCC;
+	}
+
+	/**
+	 * 从APP1段的内容中读取IFD0的方向标记
+	 *
+	 * @return 方向标记(1-8)，不是EXIF段或没有方向标记时返回0
+	 */
+	static int parseExifOrientation(byte[] data, int length) {
+		if (length < 14 || data[0] != 'E' || data[1] != 'x' || data[2] != 'i' || data[3] != 'f' || data[4] != 0
+				|| data[5] != 0) {
+			return 0;
+		}
+		int tiff = 6;
+		boolean littleEndian;
+		if (data[tiff] == 'I' && data[tiff + 1] == 'I') {
+			littleEndian = true;
+		} else if (data[tiff] == 'M' && data[tiff + 1] == 'M') {
+			littleEndian = false;
+		} else {
+			return 0;
+		}
+		if (readUInt16(data, tiff + 2, littleEndian) != 42) {
+			return 0;
+		}
+		long ifdOffset = readUInt32(data, tiff + 4, littleEndian);
+		if (ifdOffset < 8 || tiff + ifdOffset + 2 > length) {
+			return 0;
+		}
+		int ifd = tiff + (int) ifdOffset;
+		int count = readUInt16(data, ifd, littleEndian);
+		for (int i = 0; i < count; i++) {
+			int entry = ifd + 2 + i * 12;
+			if (entry + 12 > length) {
+				break;
+			}
+			if (readUInt16(data, entry, littleEndian) == TAG_ORIENTATION) {
+				if (readUInt16(data, entry + 2, littleEndian) != TYPE_SHORT) {
+					return 0;
+				}
+				int value = readUInt16(data, entry + 8, littleEndian);
+				return value >= 1 && value <= 8 ? value : 0;
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * IHDR给出宽高和颜色类型，颜色类型没有透明通道时再查找IDAT之前是否有tRNS块
+	 */
+	private static ImageInfo parsePng(InputStream in) throws IOException {
+		// 签名剩余6字节 + IHDR块的长度和类型8字节 + 宽高8字节 + 位深度和颜色类型2字节
+		byte[] buf = new byte[24];
+		if (!readFully(in, buf, 0, buf.length)) {
+			return null;
+		}
+		if (buf[0] != 'N' || buf[1] != 'G' || buf[10] != 'I' || buf[11] != 'H' || buf[12] != 'D' || buf[13] != 'R') {
+			return null;
+		}
+		int width = (int) readUInt32(buf, 14, false);
+		int height = (int) readUInt32(buf, 18, false);
+		int colorType = buf[23] & 0xFF;
+		boolean hasAlpha = colorType == 4 || colorType == 6;
+		// IHDR剩余3字节和CRC 4字节
+		if (!hasAlpha && skipFully(in, 7)) {
+			for (int i = 0; i < MAX_PNG_CHUNKS && readFully(in, buf, 0, 8); i++) {
+				if (buf[4] == 't' && buf[5] == 'R' && buf[6] == 'N' && buf[7] == 'S') {
+					hasAlpha = true;
+					break;
+				}
+				if ((buf[4] == 'I' && buf[5] == 'D' && buf[6] == 'A' && buf[7] == 'T')
+						|| (buf[4] == 'I' && buf[5] == 'E' && buf[6] == 'N' && buf[7] == 'D')
+						|| !skipFully(in, readUInt32(buf, 0, false) + 4)) {
+					break;
+				}
+			}
+		}
+		return new ImageInfo(width, height, "image/png", ImageInfo.ORIENTATION_NORMAL, hasAlpha);
+	}
+
+	/**
+	 * 逻辑屏幕描述符中的宽高。透明色在图形控制扩展中声明，这里不读取，按可能透明处理
+	 */
+	private static ImageInfo parseGif(InputStream in) throws IOException {
+		byte[] buf = new byte[8];
+		if (!readFully(in, buf, 0, buf.length) || buf[0] != 'F' || buf[1] != '8' || buf[3] != 'a') {
+			return null;
+		}
+		int width = readUInt16(buf, 4, true);
+		int height = readUInt16(buf, 6, true);
+		return new ImageInfo(width, height, "image/gif", ImageInfo.ORIENTATION_NORMAL, true);
+	}
+
+	/**
+	 * 根据第一个块的类型读取宽高：VP8(有损)、VP8L(无损)或VP8X(扩展格式)。
+	 * 扩展格式的EXIF块位于文件末尾，这里不读取，方向按正常处理
+	 */
+	private static ImageInfo parseWebp(InputStream in) throws IOException {
+		// "FF" + 文件大小4字节 + "WEBP" + 块类型4字节 + 块大小4字节
+		byte[] buf = new byte[18];
+		if (!readFully(in, buf, 0, buf.length)) {
+			return null;
+		}
+		if (buf[0] != 'F' || buf[1] != 'F' || buf[6] != 'W' || buf[7] != 'E' || buf[8] != 'B' || buf[9] != 'P'
+				|| buf[10] != 'V' || buf[11] != 'P' || buf[12] != '8') {
+			return null;
+		}
+		int chunk = buf[13];
+		if (chunk == ' ') {
+			// 帧标记3字节 + 起始码9d 01 2a + 宽高各14位
+			if (!readFully(in, buf, 0, 10) || (buf[3] & 0xFF) != 0x9D || buf[4] != 0x01 || buf[5] != 0x2A) {
+				return null;
+			}
+			int width = readUInt16(buf, 6, true) & 0x3FFF;
+			int height = readUInt16(buf, 8, true) & 0x3FFF;
+			return new ImageInfo(width, height, "image/webp", ImageInfo.ORIENTATION_NORMAL, false);
+		} else if (chunk == 'L') {
+			// 签名0x2f + 宽高各14位(减1) + 透明标记1位
+			if (!readFully(in, buf, 0, 5) || buf[0] != 0x2F) {
+				return null;
+			}
+			long bits = readUInt32(buf, 1, true);
+			int width = (int) (bits & 0x3FFF) + 1;
+			int height = (int) ((bits >> 14) & 0x3FFF) + 1;
+			boolean hasAlpha = ((bits >> 28) & 1) != 0;
+			return new ImageInfo(width, height, "image/webp", ImageInfo.ORIENTATION_NORMAL, hasAlpha);
+		} else if (chunk == 'X') {
+			// 标记1字节 + 保留3字节 + 画布宽高各24位(减1)
+			if (!readFully(in, buf, 0, 10)) {
+				return null;
+			}
+			boolean hasAlpha = (buf[0] & 0x10) != 0;
+			int width = readUInt24(buf, 4) + 1;
+			int height = readUInt24(buf, 7) + 1;
+			return new ImageInfo(width, height, "image/webp", ImageInfo.ORIENTATION_NORMAL, hasAlpha);
+		}
+		return null;
+	}
+
+	private static int readUInt16(byte[] data, int offset, boolean littleEndian) {
+		int a = data[offset] & 0xFF;
+		int b = data[offset + 1] & 0xFF;
+		return littleEndian ? (b << 8) | a : (a << 8) | b;
+	}
+
+	private static int readUInt24(byte[] data, int offset) {
+		return (data[offset] & 0xFF) | (data[offset + 1] & 0xFF) << 8 | (data[offset + 2] & 0xFF) << 16;
+	}
+
+	private static long readUInt32(byte[] data, int offset, boolean littleEndian) {
+		long a = data[offset] & 0xFF;
+		long b = data[offset + 1] & 0xFF;
+		long c = data[offset + 2] & 0xFF;
+		long d = data[offset + 3] & 0xFF;
+		return littleEndian ? (d << 24) | (c << 16) | (b << 8) | a : (a << 24) | (b << 16) | (c << 8) | d;
+	}
+
+	private static boolean readFully(InputStream in, byte[] buffer, int offset, int length) throws IOException {
+		while (length > 0) {
+			int count = in.read(buffer, offset, length);
+			if (count < 0) {
+				return false;
+			}
+			offset += count;
+			length -= count;
+		}
+		return true;
+	}
+
+	private static boolean skipFully(InputStream in, long count) throws IOException {
+		while (count > 0) {
+			long skipped = in.skip(count);
+			if (skipped <= 0) {
+				// skip不保证前进，读一个字节判断是否已到结尾
+				if (in.read() < 0) {
+					return false;
+				}
+				skipped = 1;
+			}
+			count -= skipped;
+		}
+		return true;
+	}
+}
@@ -0,0 +1,71 @@
+package com.suwec.framework.utils;
+
+/**
+ * 图片的基本信息(只读取文件头即可得到)
+ */
+public final class ImageInfo {
+	/** 方向正常，与ExifInterface.ORIENTATION_NORMAL相同 */
+	public static final int ORIENTATION_NORMAL = 1;
+
+	private final int width;
+	private final int height;
+	private final String mimeType;
+	private final int orientation;
+	private final boolean hasAlpha;
+
+	/**
+	 * 方向按正常处理，除JPEG外都按可能带透明通道处理
+	 */
+	public ImageInfo(int width, int height, String mimeType) {
+		this(width, height, mimeType, ORIENTATION_NORMAL, !"image/jpeg".equals(mimeType));
+	}
+
+	public ImageInfo(int width, int height, String mimeType, int orientation, boolean hasAlpha) {
+		this.width = width;
+		this.height = height;
+		this.mimeType = mimeType;
+		this.orientation = orientation;
+		this.hasAlpha = hasAlpha;
+	}
+
+	/**
+	 * 原图宽度(像素，未按EXIF方向旋转)
+	 */
+	public int getWidth() {
+		return width;
+	}
+
+	/**
+	 * 原图高度(像素，未按EXIF方向旋转)
+	 */
+	public int getHeight() {
+		return height;
+	}
+
+	/**
+	 * 格式，如image/jpeg，未知时为null
+	 */
+	public String getMimeType() {
+		return mimeType;
+	}
+
+	/**
+	 * EXIF方向标记，取值同ExifInterface.ORIENTATION_*，没有标记时为{@link #ORIENTATION_NORMAL}
+	 */
+	public int getOrientation() {
+		return orientation;
+	}
+
+	/**
+	 * 是否可能带透明通道
+	 */
+	public boolean hasAlpha() {
+		return hasAlpha;
+	}
+
+	@Override
+	public String toString() {
+		return "ImageInfo(" + width + "x" + height + ", " + mimeType + ", orientation=" + orientation + ", alpha="
+				+ hasAlpha + ")";
+	}
+}
@@ -0,0 +1,577 @@
+package com.suwec.framework.utils;
+
+import android.graphics.Bitmap;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 异步图片处理管线
+ * <p>
+ * 将BitmapUtil的解码、变换、编码/保存串联为一个请求，在线程数等于CPU核数的线程池中执行，
+ * 结果在主线程回调。相同的请求(来源为文件路径)正在执行时不会重复执行，而是共享同一个结果；
+ * 每个请求可以单独取消，所有等待者都取消后任务随之取消。
+ * </p>
+ */
+public class ImagePipeline {
+	private static final String TAG = "ImagePipeline";
+
+	private static ImagePipeline instance;
+
+	private final ThreadPoolExecutor executor;
+	private final Handler mainHandler = new Handler(Looper.getMainLooper());
+	/** 正在执行(或排队)的任务，按请求的key去重 */
+	private final Map<String, Job> inFlight = new HashMap<String, Job>();
+
+	/**
+	 * 获取共用的管线对象
+	 */
+	public static synchronized ImagePipeline getInstance() {
+		if (instance == null) {
+			instance = new ImagePipeline();
+		}
+		return instance;
+	}
+
+	/**
+	 * 创建线程数等于CPU核数的管线
+	 */
+	public ImagePipeline() {
+		this(Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * @param threads
+	 *            最大并行数
+	 */
+	public ImagePipeline(int threads) {
+		int poolSize = Math.max(1, threads);
+		executor = new ThreadPoolExecutor(poolSize, poolSize, 30, TimeUnit.SECONDS,
+				new LinkedBlockingQueue<Runnable>(), new PipelineThreadFactory());
+		executor.allowCoreThreadTimeOut(true);
+	}
+
+	/**
+	 * 提交请求
+	 *
+	 * @param request
+	 *            图片处理请求
+	 * @param callback
+	 *            结果回调(主线程)
+	 * @return 可用于取消本次请求的句柄
+	 */
+	public Handle submit(Request request, Callback callback) {
+		if (request == null || callback == null) {
+			throw new IllegalArgumentException("request == null || callback == null");
+		}
+		Handle handle = new Handle(callback);
+		synchronized (inFlight) {
+			Job job = inFlight.get(request.key);
+			if (job == null) {
+				job = new Job(request);
+				inFlight.put(request.key, job);
+				job.handles.add(handle);
+				handle.job = job;
+				job.future = executor.submit(job);
+			} else {
+				job.handles.add(handle);
+				handle.job = job;
+			}
+		}
+		return handle;
+	}
+
+	/**
+	 * 关闭管线，已提交的任务会继续执行完毕
+	 */
+	public void shutdown() {
+		executor.shutdown();
+	}
+
+	private void cancel(Handle handle) {
+		synchronized (inFlight) {
+			if (handle.cancelled) {
+				return;
+			}
+			handle.cancelled = true;
+			Job job = handle.job;
+			if (job == null || !job.handles.remove(handle) || !job.handles.isEmpty()) {
+				return;
+			}
+			// 已没有等待者，取消任务。解码不可中断，只能在各步骤之间检查取消标记
+			job.cancelled = true;
+			if (job.future != null) {
+				job.future.cancel(false);
+			}
+			if (inFlight.get(job.request.key) == job) {
+				inFlight.remove(job.request.key);
+			}
+		}
+	}
+
+	private void finish(Job job, final Result result, final Throwable error) {
+		final List<Handle> handles;
+		synchronized (inFlight) {
+			if (inFlight.get(job.request.key) == job) {
+				inFlight.remove(job.request.key);
+			}
+			handles = new ArrayList<Handle>(job.handles);
+			job.handles.clear();
+		}
+		if (handles.isEmpty()) {
+			recycleResult(result);
+			return;
+		}
+		mainHandler.post(new Runnable() {
+			@Override
+			public void run() {
+				boolean delivered = false;
+				for (Handle handle : handles) {
+					if (handle.cancelled) {
+						continue;
+					}
+					delivered = true;
+					if (error != null) {
+						handle.callback.onFailure(error);
+					} else {
+						handle.callback.onSuccess(result);
+					}
+				}
+				if (!delivered) {
+					recycleResult(result);
+				}
+			}
+		});
+	}
+
+	private static void recycleResult(Result result) {
+		if (result != null && result.ownsBitmap) {
+			BitmapUtil.release(result.bitmap);
+		}
+	}
+
+	/**
+	 * 在工作线程中依次执行解码、变换、输出
+	 */
+	private static Result execute(Request request, Job job) throws IOException {
+		Bitmap bitmap;
+		boolean owned = true;
+		if (request.bitmap != null) {
+			bitmap = request.bitmap;
+			owned = false;// 调用者传入的位图不由管线回收
+		} else if (request.path != null) {
+			bitmap = BitmapUtil.decodeFileWithExif(request.path, request.reqWidth, request.reqHeight);
+		} else {
+			bitmap = BitmapUtil.base64ToBitmap(request.base64, request.reqWidth, request.reqHeight);
+		}
+		if (bitmap == null) {
+			throw new IOException("decode failed: " + request.key);
+		}
+		try {
+			for (Transform transform : request.transforms) {
+				job.checkCancelled();
+				Bitmap transformed = transform.transform(bitmap);
+				if (transformed == null) {
+					throw new IOException("transform failed: " + transform.getKey());
+				}
+				if (transformed != bitmap) {
+					if (owned) {
+						BitmapUtil.release(bitmap);// 中间结果已不再需要
+					}
+					bitmap = transformed;
+					owned = true;
+				}
+			}
+			job.checkCancelled();
+			Result result = new Result();
+			switch (request.output) {
+			case Request.OUTPUT_FILE:
+				BitmapWriter.write(bitmap, request.outputPath, request.format, request.quality, false);
+				result.file = request.outputPath;
+				break;
+			case Request.OUTPUT_BASE64:
+				StringWriter writer = new StringWriter();
+				BitmapUtil.bitmapToBase64(bitmap, request.format, request.quality, false, writer);
+				result.base64 = writer.toString();
+				break;
+			case Request.OUTPUT_BYTES:
+				result.bytes = BitmapUtil.compressToTargetSize(bitmap, request.maxBytes, request.format);
+				break;
+			default:
+				result.bitmap = bitmap;
+				result.ownsBitmap = owned;
+				return result;
+			}
+			if (owned) {
+				BitmapUtil.release(bitmap);
+			}
+			return result;
+		} catch (IOException e) {
+			if (owned) {
+				BitmapUtil.release(bitmap);
+			}
+			throw e;
+		} catch (RuntimeException e) {
+			if (owned) {
+				BitmapUtil.release(bitmap);
+			}
+			throw e;
+		}
+	}
+
+	private final class Job implements Runnable {
+		final Request request;
+		final List<Handle> handles = new ArrayList<Handle>(1);
+		Future<?> future;
+		volatile boolean cancelled;
+
+		Job(Request request) {
+			this.request = request;
+		}
+
+		@Override
+		public void run() {
+			if (cancelled) {
+				return;
+			}
+			Result result = null;
+			Throwable error = null;
+			try {
+				result = execute(request, this);
+			} catch (Throwable t) {
+				error = t;
+			}
+			if (cancelled) {
+				recycleResult(result);
+				return;
+			}
+			if (error != null && !(error instanceof CancellationException)) {
+				Logs.w(TAG, "request failed: " + request.key, error);
+			}
+			finish(this, result, error);
+		}
+
+		void checkCancelled() {
+			if (cancelled) {
+				throw new CancellationException(request.key);
+			}
+		}
+	}
+
+	private static final class PipelineThreadFactory implements ThreadFactory {
+		private final AtomicInteger count = new AtomicInteger(1);
+
+		@Override
+		public Thread newThread(final Runnable r) {
+			return new Thread(new Runnable() {
+				@Override
+				public void run() {
+					Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+					r.run();
+				}
+			}, TAG + "-" + count.getAndIncrement());
+		}
+	}
+
+	/**
+	 * 请求句柄
+	 */
+	public final class Handle {
+		final Callback callback;
+		Job job;
+		volatile boolean cancelled;
+
+		Handle(Callback callback) {
+			this.callback = callback;
+		}
+
+		/**
+		 * 取消本次请求，取消后不会再收到回调
+		 */
+		public void cancel() {
+			ImagePipeline.this.cancel(this);
+		}
+
+		public boolean isCancelled() {
+			return cancelled;
+		}
+	}
+
+	/**
+	 * 结果回调，在主线程执行
+	 */
+	public interface Callback {
+		/**
+		 * @param result
+		 *            处理结果。相同请求的等待者共享同一个结果对象
+		 */
+		void onSuccess(Result result);
+
+		void onFailure(Throwable error);
+	}
+
+	/**
+	 * 位图变换步骤
+	 */
+	public interface Transform {
+		/**
+		 * @param source
+		 *            输入位图，不要回收
+		 * @return 变换结果，可以直接返回source
+		 */
+		Bitmap transform(Bitmap source);
+
+		/**
+		 * 描述变换及其参数的唯一字符串，用于请求去重
+		 */
+		String getKey();
+	}
+
+	/**
+	 * 缩放至指定宽度，参见{@link BitmapUtil#setBitmapSize(Bitmap, int)}
+	 */
+	public static Transformation scaleToWidth(int width) {
+		return new Transformation().scaleToWidth(width);
+	}
+
+	/**
+	 * 顺时针旋转，参见{@link BitmapUtil#adjustPhotoRotation(Bitmap, int)}
+	 */
+	public static Transformation rotate(int degree) {
+		return new Transformation().rotate(degree);
+	}
+
+	/**
+	 * 圆角，参见{@link BitmapUtil#getRoundedCornerBitmap(Bitmap, float)}
+	 */
+	public static Transformation roundCorners(float radius) {
+		return new Transformation().roundCornersRatio(radius);
+	}
+
+	/**
+	 * 处理结果，根据请求的输出方式只有对应的一项有值
+	 */
+	public static final class Result {
+		Bitmap bitmap;
+		boolean ownsBitmap;
+		byte[] bytes;
+		String base64;
+		String file;
+
+		/** 未指定输出方式时的结果位图 */
+		public Bitmap getBitmap() {
+			return bitmap;
+		}
+
+		/** {@link Request.Builder#compressToTargetSize}的编码结果 */
+		public byte[] getBytes() {
+			return bytes;
+		}
+
+		/** {@link Request.Builder#toBase64}的编码结果 */
+		public String getBase64() {
+			return base64;
+		}
+
+		/** {@link Request.Builder#saveTo}保存的文件路径 */
+		public String getFile() {
+			return file;
+		}
+	}
+
+	/**
+	 * 图片处理请求：解码 → 变换 → 输出(位图/文件/base64/字节数组)
+	 */
+	public static final class Request {
+		static final int OUTPUT_BITMAP = 0;
+		static final int OUTPUT_FILE = 1;
+		static final int OUTPUT_BASE64 = 2;
+		static final int OUTPUT_BYTES = 3;
+
+		final String path;
+		final CharSequence base64;
+		final Bitmap bitmap;
+		final int reqWidth;
+		final int reqHeight;
+		final List<Transform> transforms;
+		final int output;
+		final String outputPath;
+		final Bitmap.CompressFormat format;
+		final int quality;
+		final int maxBytes;
+		final String key;
+
+		/** 内存中的来源(base64、位图)没有稳定的标识，每个请求分配唯一编号，不与其他请求合并 */
+		private static final AtomicLong sNextSourceId = new AtomicLong();
+
+		private Request(Builder builder) {
+			path = builder.path;
+			base64 = builder.base64;
+			bitmap = builder.bitmap;
+			reqWidth = builder.reqWidth;
+			reqHeight = builder.reqHeight;
+			transforms = Collections.unmodifiableList(new ArrayList<Transform>(builder.transforms));
+			output = builder.output;
+			outputPath = builder.outputPath;
+			format = builder.format;
+			quality = builder.quality;
+			maxBytes = builder.maxBytes;
+			key = buildKey();
+		}
+
+		private String buildKey() {
+			StringBuilder sb = new StringBuilder();
+			if (path != null) {
+				sb.append("path:").append(path);
+			} else if (base64 != null) {
+				sb.append("base64#").append(sNextSourceId.incrementAndGet());
+			} else {
+				sb.append("bitmap#").append(sNextSourceId.incrementAndGet());
+			}
+			sb.append('|').append(reqWidth).append('x').append(reqHeight);
+			for (Transform transform : transforms) {
+				sb.append('|').append(transform.getKey());
+			}
+			sb.append("|out").append(output);
+			if (output == OUTPUT_FILE) {
+				sb.append(':').append(outputPath).append(':').append(format).append(':').append(quality);
+			} else if (output != OUTPUT_BITMAP) {
+				sb.append(':').append(format).append(':').append(quality).append(':').append(maxBytes);
+			}
+			return sb.toString();
+		}
+
+		public String getKey() {
+			return key;
+		}
+
+		public static final class Builder {
+			private String path;
+			private CharSequence base64;
+			private Bitmap bitmap;
+			private int reqWidth;
+			private int reqHeight;
+			private final List<Transform> transforms = new ArrayList<Transform>();
+			private Transformation fused;
+			private int output = OUTPUT_BITMAP;
+			private String outputPath;
+			private Bitmap.CompressFormat format = Bitmap.CompressFormat.JPEG;
+			private int quality = 100;
+			private int maxBytes;
+
+			/** 从本地文件解码，按EXIF方向摆正 */
+			public Builder path(String path) {
+				this.path = path;
+				return this;
+			}
+
+			/** 从base64数据解码 */
+			public Builder base64(CharSequence base64) {
+				this.base64 = base64;
+				return this;
+			}
+
+			/** 直接处理已有位图，管线不会回收该位图 */
+			public Builder bitmap(Bitmap bitmap) {
+				this.bitmap = bitmap;
+				return this;
+			}
+
+			/** 解码时直接缩小到不小于该尺寸 */
+			public Builder resize(int reqWidth, int reqHeight) {
+				this.reqWidth = reqWidth;
+				this.reqHeight = reqHeight;
+				return this;
+			}
+
+			/** 追加变换步骤，按添加顺序执行 */
+			public Builder transform(Transform transform) {
+				transforms.add(transform);
+				return this;
+			}
+
+			/**
+			 * 连续添加的scaleToWidth/rotate/roundCorners合并为同一个{@link Transformation}，只绘制一次
+			 */
+			private Transformation fused() {
+				if (fused == null || transforms.isEmpty() || transforms.get(transforms.size() - 1) != fused) {
+					fused = new Transformation();
+					transforms.add(fused);
+				}
+				return fused;
+			}
+
+			public Builder scaleToWidth(int width) {
+				fused().scaleToWidth(width);
+				return this;
+			}
+
+			public Builder rotate(int degree) {
+				fused().rotate(degree);
+				return this;
+			}
+
+			public Builder roundCorners(float radius) {
+				fused().roundCornersRatio(radius);
+				return this;
+			}
+
+			/** 输出为JPEG文件(质量100) */
+			public Builder saveTo(String outputPath) {
+				return saveTo(outputPath, Bitmap.CompressFormat.JPEG, 100);
+			}
+
+			/** 输出为文件，参见{@link BitmapWriter#write} */
+			public Builder saveTo(String outputPath, Bitmap.CompressFormat format, int quality) {
+				this.output = OUTPUT_FILE;
+				this.outputPath = outputPath;
+				this.format = format;
+				this.quality = quality;
+				return this;
+			}
+
+			/** 输出为base64字符串 */
+			public Builder toBase64(Bitmap.CompressFormat format, int quality) {
+				this.output = OUTPUT_BASE64;
+				this.format = format;
+				this.quality = quality;
+				return this;
+			}
+
+			/** 输出为不超过指定大小的编码数据，参见{@link BitmapUtil#compressToTargetSize} */
+			public Builder compressToTargetSize(int maxBytes, Bitmap.CompressFormat format) {
+				this.output = OUTPUT_BYTES;
+				this.maxBytes = maxBytes;
+				this.format = format;
+				return this;
+			}
+
+			public Request build() {
+				int sources = (path != null ? 1 : 0) + (base64 != null ? 1 : 0) + (bitmap != null ? 1 : 0);
+				if (sources != 1) {
+					throw new IllegalStateException("exactly one of path/base64/bitmap is required");
+				}
+				if (output == OUTPUT_FILE && outputPath == null) {
+					throw new IllegalStateException("outputPath == null");
+				}
+				return new Request(this);
+			}
+		}
+	}
+}
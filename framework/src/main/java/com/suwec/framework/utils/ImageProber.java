@@ -0,0 +1,242 @@
+package com.suwec.framework.utils;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 图片信息批量探测
+ * <p>
+ * 通过{@link ImageHeaderParser}读取图片信息，结果按文件路径、大小和修改时间缓存，并可保存到文件，
+ * 下次启动时文件未改变的图片不必再读取。目录中的文件分批提交到调用者提供的线程池并行探测。
+ * 可以在任意线程使用。
+ * </p>
+ * 用法：
+ * <pre>
+ * ImageProber prober = new ImageProber(new File(context.getCacheDir(), "image_info"));
+ * Map&lt;File, ImageInfo&gt; infos = prober.probeDirectory(dir, executor);
+ * prober.save();
+ * </pre>
+ */
+public class ImageProber {
+	private static final int MAGIC = 0x494D4749;// "IMGI"
+	private static final int VERSION = 1;
+	/** 每个并行任务探测的文件数 */
+	private static final int BATCH_SIZE = 64;
+
+	private final File cacheFile;
+	private final Map<String, Entry> entries = new ConcurrentHashMap<String, Entry>();
+	private final AtomicBoolean dirty = new AtomicBoolean();
+
+	/**
+	 * @param cacheFile
+	 *            缓存文件，为null时只在内存中缓存
+	 */
+	public ImageProber(File cacheFile) {
+		this.cacheFile = cacheFile;
+		load();
+	}
+
+	/**
+	 * 读取单个文件的图片信息，文件大小和修改时间未变时直接返回缓存
+	 *
+	 * @return 图片信息，不是支持的图片格式或读取失败时返回null
+	 */
+	public ImageInfo probe(File file) {
+		String key = file.getAbsolutePath();
+		long length = file.length();
+		long lastModified = file.lastModified();
+		Entry entry = entries.get(key);
+		if (entry != null && entry.length == length && entry.lastModified == lastModified) {
+			return entry.info;
+		}
+		ImageInfo info;
+		try {
+			info = ImageHeaderParser.parse(file);
+		} catch (IOException e) {
+			info = null;
+		}
+		if (info != null) {
+			entries.put(key, new Entry(length, lastModified, info));
+			dirty.set(true);
+		} else if (entries.remove(key) != null) {
+			dirty.set(true);
+		}
+		return info;
+	}
+
+	/**
+	 * 并行探测目录(不含子目录)中的所有图片
+	 *
+	 * @param dir
+	 *            目录
+	 * @param executor
+	 *            执行探测的线程池，由调用者管理
+	 * @return 按文件名排序的图片及其信息，不是图片的文件不包含在内
+	 * @throws InterruptedException
+	 *             等待结果时被中断
+	 */
+	public Map<File, ImageInfo> probeDirectory(File dir, ExecutorService executor) throws InterruptedException {
+		File[] files = dir.listFiles();
+		if (files == null || files.length == 0) {
+			return Collections.emptyMap();
+		}
+		Arrays.sort(files);
+		List<Future<ImageInfo[]>> futures = new ArrayList<Future<ImageInfo[]>>();
+		for (int start = 0; start < files.length; start += BATCH_SIZE) {
+			final File[] batch = Arrays.copyOfRange(files, start, Math.min(start + BATCH_SIZE, files.length));
+			futures.add(executor.submit(new Callable<ImageInfo[]>() {
+				@Override
+				public ImageInfo[] call() {
+					ImageInfo[] infos = new ImageInfo[batch.length];
+					for (int i = 0; i < batch.length; i++) {
+						if (batch[i].isFile()) {
+							infos[i] = probe(batch[i]);
+						}
+					}
+					return infos;
+				}
+			}));
+		}
+		Map<File, ImageInfo> result = new LinkedHashMap<File, ImageInfo>();
+		try {
+			for (int i = 0; i < futures.size(); i++) {
+				ImageInfo[] infos = futures.get(i).get();
+				for (int j = 0; j < infos.length; j++) {
+					if (infos[j] != null) {
+						result.put(files[i * BATCH_SIZE + j], infos[j]);
+					}
+				}
+			}
+		} catch (ExecutionException e) {
+			throw new RuntimeException(e.getCause());
+		} finally {
+			for (Future<ImageInfo[]> future : futures) {
+				future.cancel(true);// 正常结束时无效果，异常或中断时取消剩余任务
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * 清空缓存(包括缓存文件)
+	 */
+	public void clear() {
+		entries.clear();
+		dirty.set(false);
+		if (cacheFile != null && cacheFile.exists() && !cacheFile.delete()) {
+			cacheFile.deleteOnExit();
+		}
+	}
+
+	/**
+	 * 有变化时保存缓存到文件。先写入临时文件再重命名，写入中途失败不会损坏原有的缓存文件
+	 */
+	public void save() throws IOException {
+		if (cacheFile == null || !dirty.getAndSet(false)) {
+			return;
+		}
+		boolean success = false;
+		File temp = new File(cacheFile.getPath() + ".tmp");
+		try {
+			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)));
+			try {
+				List<Map.Entry<String, Entry>> snapshot = new ArrayList<Map.Entry<String, Entry>>(entries.entrySet());
+				out.writeInt(MAGIC);
+				out.writeInt(VERSION);
+				out.writeInt(snapshot.size());
+				for (Map.Entry<String, Entry> item : snapshot) {
+					Entry entry = item.getValue();
+					ImageInfo info = entry.info;
+					out.writeUTF(item.getKey());
+					out.writeLong(entry.length);
+					out.writeLong(entry.lastModified);
+					out.writeInt(info.getWidth());
+					out.writeInt(info.getHeight());
+					out.writeUTF(info.getMimeType() != null ? info.getMimeType() : "");
+					out.writeByte(info.getOrientation());
+					out.writeBoolean(info.hasAlpha());
+				}
+			} finally {
+				out.close();
+			}
+			if (!temp.renameTo(cacheFile)) {
+				throw new IOException("rename failed: " + temp + " -> " + cacheFile);
+			}
+			success = true;
+		} finally {
+			if (!success) {
+				dirty.set(true);
+				temp.delete();
+			}
+		}
+	}
+
+	/**
+	 * 读取缓存文件，文件损坏或版本不同时丢弃
+	 */
+	private void load() {
+		if (cacheFile == null || !cacheFile.exists()) {
+			return;
+		}
+		DataInputStream in = null;
+		try {
+			in = new DataInputStream(new BufferedInputStream(new FileInputStream(cacheFile)));
+			if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+				return;
+			}
+			int count = in.readInt();
+			for (int i = 0; i < count; i++) {
+				String path = in.readUTF();
+				long length = in.readLong();
+				long lastModified = in.readLong();
+				int width = in.readInt();
+				int height = in.readInt();
+				String mimeType = in.readUTF();
+				int orientation = in.readByte();
+				boolean hasAlpha = in.readBoolean();
+				entries.put(path, new Entry(length, lastModified, new ImageInfo(width, height,
+						mimeType.length() > 0 ? mimeType : null, orientation, hasAlpha)));
+			}
+		} catch (IOException e) {
+			entries.clear();
+		} finally {
+			if (in != null) {
+				try {
+					in.close();
+				} catch (IOException e) {
+					e.printStackTrace();
+				}
+			}
+		}
+	}
+
+	private static final class Entry {
+		final long length;
+		final long lastModified;
+		final ImageInfo info;
+
+		Entry(long length, long lastModified, ImageInfo info) {
+			this.length = length;
+			this.lastModified = lastModified;
+			this.info = info;
+		}
+	}
+}
@@ -0,0 +1,229 @@
+package com.suwec.framework.utils;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 行政区划代码表
+ * <p>
+ * 代码按升序保存在int[]中，名称连续保存在一个char[]字符串池里，按下标用偏移量定位，
+ * 查找是基本类型数组上的二分查找，不创建对象。数据在首次使用时从同包下的二进制资源region_codes.bin加载，
+ * 二进制文件由{@link #compile(BufferedReader, OutputStream)}从"代码,名称"文本生成。
+ * </p>
+ * <p>
+ * 目前的资源只收录35个省级代码(如110000，与原IDCardValidateTool.cityCodes相同)，
+ * 因此只能判断省级代码是否存在，不能判断市、县级代码。
+ * </p>
+ */
+public final class RegionCodeTable {
+    /** 二进制资源名(与本类同包) */
+    static final String RESOURCE_NAME = "region_codes.bin";
+    private static final int MAGIC = 0x52474E31;// "RGN1"
+
+    private final int[] codes;
+    /** 第i个名称为pool[offsets[i], offsets[i + 1]) */
+    private final int[] offsets;
+    private final char[] pool;
+    /** 已创建的名称字符串，首次读取时创建 */
+    private final String[] names;
+
+    private RegionCodeTable(int[] codes, int[] offsets, char[] pool) {
+        this.codes = codes;
+        this.offsets = offsets;
+        this.pool = pool;
+        this.names = new String[codes.length];
+    }
+
+    private static volatile RegionCodeTable sInstance;
+
+    /**
+     * 获取代码表，首次调用时加载
+     *
+     * @throws IllegalStateException 资源缺失或损坏。不会退回空表，否则所有号码都会被当作地区代码不存在
+     */
+    public static RegionCodeTable get() {
+        RegionCodeTable table = sInstance;
+        if (table == null) {
+            synchronized (RegionCodeTable.class) {
+                table = sInstance;
+                if (table == null) {
+                    table = loadResource();
+                    sInstance = table;
+                }
+            }
+        }
+        return table;
+    }
+
+    private static RegionCodeTable loadResource() {
+        InputStream in = RegionCodeTable.class.getResourceAsStream(RESOURCE_NAME);
+        if (in == null) {
+            throw new IllegalStateException("missing resource " + RESOURCE_NAME);
+        }
+        try {
+            return read(in);
+        } catch (IOException e) {
+            throw new IllegalStateException("failed to load " + RESOURCE_NAME, e);
+        } finally {
+            try {
+                in.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * 读取二进制代码表：MAGIC、条数n、n个代码(升序)、n+1个名称偏移、名称池字符数、名称池(UTF-16)
+     */
+    static RegionCodeTable read(InputStream input) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(input));
+        if (in.readInt() != MAGIC) {
+            throw new IOException("bad region table magic");
+        }
+        int count = in.readInt();
+        int[] codes = new int[count];
+        for (int i = 0; i < count; i++) {
+            codes[i] = in.readInt();
+            if (i > 0 && codes[i] <= codes[i - 1]) {
+                throw new IOException("region codes not sorted at " + i);
+            }
+        }
+        int[] offsets = new int[count + 1];
+        for (int i = 0; i <= count; i++) {
+            offsets[i] = in.readInt();
+        }
+        char[] pool = new char[in.readInt()];
+        for (int i = 0; i < pool.length; i++) {
+            pool[i] = in.readChar();
+        }
+        if (offsets[count] != pool.length) {
+            throw new IOException("region name pool size mismatch");
+        }
+        return new RegionCodeTable(codes, offsets, pool);
+    }
+
+    /**
+     * 把"代码,名称"(也可用制表符或空格分隔)格式的文本编译为二进制代码表。空行和#开头的行被忽略，
+     * 重复的代码以最后一行为准
+     *
+     * @param in 文本，每行一个代码
+     * @param out 写入二进制代码表，不会被关闭
+     */
+    public static void compile(BufferedReader in, OutputStream out) throws IOException {
+        TreeMap<Integer, String> entries = new TreeMap<Integer, String>();
+        String line;
+        int lineNumber = 0;
+        while ((line = in.readLine()) != null) {
+            lineNumber++;
+            line = line.trim();
+            if (line.length() == 0 || line.charAt(0) == '#') {
+                continue;
+            }
+            int separator = 0;
+            while (separator < line.length() && Character.isDigit(line.charAt(separator))) {
+                separator++;
+            }
+            if (separator != 6) {
+                throw new IOException("line " + lineNumber + ": expected six-digit code: " + line);
+            }
+            String name = line.substring(separator).replaceFirst("^[,\\t ]+", "").trim();
+            entries.put(Integer.parseInt(line.substring(0, separator)), name);
+        }
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(MAGIC);
+        data.writeInt(entries.size());
+        for (Integer code : entries.keySet()) {
+            data.writeInt(code);
+        }
+        int offset = 0;
+        data.writeInt(offset);
+        for (String name : entries.values()) {
+            offset += name.length();
+            data.writeInt(offset);
+        }
+        data.writeInt(offset);
+        for (Map.Entry<Integer, String> entry : entries.entrySet()) {
+            data.writeChars(entry.getValue());
+        }
+        data.flush();
+    }
+
+    /**
+     * 代码的下标，不存在时返回负数
+     */
+    private int indexOf(int code) {
+        int low = 0;
+        int high = codes.length - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int value = codes[mid];
+            if (value < code) {
+                low = mid + 1;
+            } else if (value > code) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(low + 1);
+    }
+
+    /**
+     * 表中是否正好有这个代码
+     */
+    public boolean contains(int code) {
+        return indexOf(code) >= 0;
+    }
+
+    /**
+     * 两位省级代码是否存在
+     */
+    public boolean isProvince(int provinceCode) {
+        return provinceCode > 0 && provinceCode < 100 && contains(provinceCode * 10000);
+    }
+
+    /**
+     * 代码对应的名称，不存在时返回null。同一代码多次调用返回同一个字符串
+     */
+    public String getName(int code) {
+        int index = indexOf(code);
+        if (index < 0) {
+            return null;
+        }
+        String name = names[index];
+        if (name == null) {
+            name = new String(pool, offsets[index], offsets[index + 1] - offsets[index]);
+            names[index] = name;// 并发时可能重复创建，结果相同
+        }
+        return name;
+    }
+
+    /**
+     * 把代码对应的名称追加到sb，不创建字符串
+     *
+     * @return 代码是否存在
+     */
+    public boolean appendName(int code, StringBuilder sb) {
+        int index = indexOf(code);
+        if (index < 0) {
+            return false;
+        }
+        sb.append(pool, offsets[index], offsets[index + 1] - offsets[index]);
+        return true;
+    }
+
+    /**
+     * 收录的代码数
+     */
+    public int size() {
+        return codes.length;
+    }
+}
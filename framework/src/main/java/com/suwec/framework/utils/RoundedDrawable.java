@@ -0,0 +1,226 @@
+package com.suwec.framework.utils;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapShader;
+import android.graphics.Canvas;
+import android.graphics.ColorFilter;
+import android.graphics.Matrix;
+import android.graphics.Paint;
+import android.graphics.Path;
+import android.graphics.PixelFormat;
+import android.graphics.Rect;
+import android.graphics.RectF;
+import android.graphics.Shader;
+import android.graphics.drawable.Drawable;
+
+/**
+ * 圆角/圆形位图Drawable
+ * <p>
+ * 绘制时通过BitmapShader直接把原图画成圆角或圆形，不生成新的位图，也不需要SRC_IN两次合成。
+ * 原图按居中裁剪(centerCrop)铺满显示区域，支持统一圆角、四个角分别设置圆角和圆形裁剪。
+ * 确实需要位图时(如通知栏图标)可调用{@link #materialize()}，结果会缓存到参数改变为止。
+ * </p>
+ * 示例：
+ * <pre>
+ * RoundedDrawable avatar = new RoundedDrawable(bitmap).setCircular(true);
+ * imageView.setImageDrawable(avatar);
+ * </pre>
+ */
+public class RoundedDrawable extends Drawable {
+	private final Bitmap bitmap;
+	private final int bitmapWidth;
+	private final int bitmapHeight;
+	private final Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG | Paint.FILTER_BITMAP_FLAG | Paint.DITHER_FLAG);
+	private final BitmapShader shader;
+	private final Matrix shaderMatrix = new Matrix();
+	private final RectF drawRect = new RectF();
+	private final Path path = new Path();
+
+	private float cornerRadius;
+	/** 四个角分别的半径(左上、右上、右下、左下)，为null时使用cornerRadius */
+	private float[] cornerRadii;
+	private boolean circular;
+	/** 显示区域或圆角参数改变后需要重新计算着色器矩阵和路径 */
+	private boolean dirty = true;
+
+	/** materialize()的缓存结果 */
+	private Bitmap materialized;
+
+	public RoundedDrawable(Bitmap bitmap) {
+		if (bitmap == null) {
+			throw new IllegalArgumentException("bitmap == null");
+		}
+		this.bitmap = bitmap;
+		this.bitmapWidth = bitmap.getWidth();
+		this.bitmapHeight = bitmap.getHeight();
+		this.shader = new BitmapShader(bitmap, Shader.TileMode.CLAMP, Shader.TileMode.CLAMP);
+		paint.setShader(shader);
+	}
+
+	public Bitmap getBitmap() {
+		return bitmap;
+	}
+
+	/**
+	 * 四个角使用相同的圆角半径(显示区域的像素)
+	 */
+	public RoundedDrawable setCornerRadius(float radius) {
+		this.cornerRadius = radius;
+		this.cornerRadii = null;
+		invalidateShape();
+		return this;
+	}
+
+	/**
+	 * 四个角分别设置圆角半径(显示区域的像素)
+	 */
+	public RoundedDrawable setCornerRadii(float topLeft, float topRight, float bottomRight, float bottomLeft) {
+		this.cornerRadii = new float[] { topLeft, topLeft, topRight, topRight, bottomRight, bottomRight, bottomLeft,
+				bottomLeft };
+		invalidateShape();
+		return this;
+	}
+
+	/**
+	 * 居中裁剪为正方形后绘制为圆形
+	 */
+	public RoundedDrawable setCircular(boolean circular) {
+		this.circular = circular;
+		invalidateShape();
+		return this;
+	}
+
+	public boolean isCircular() {
+		return circular;
+	}
+
+	private void invalidateShape() {
+		dirty = true;
+		releaseMaterialized();
+		invalidateSelf();
+	}
+
+	@Override
+	protected void onBoundsChange(Rect bounds) {
+		super.onBoundsChange(bounds);
+		dirty = true;
+	}
+
+	/**
+	 * 根据显示区域计算绘制区域、着色器矩阵(centerCrop)和不同圆角的路径
+	 */
+	private void updateShape() {
+		Rect bounds = getBounds();
+		drawRect.set(bounds);
+		if (circular) {
+			float side = Math.min(drawRect.width(), drawRect.height());
+			float left = drawRect.left + (drawRect.width() - side) / 2f;
+			float top = drawRect.top + (drawRect.height() - side) / 2f;
+			drawRect.set(left, top, left + side, top + side);
+		}
+		float scale = Math.max(drawRect.width() / bitmapWidth, drawRect.height() / bitmapHeight);
+		shaderMatrix.setScale(scale, scale);
+		shaderMatrix.postTranslate(drawRect.left + (drawRect.width() - bitmapWidth * scale) / 2f,
+				drawRect.top + (drawRect.height() - bitmapHeight * scale) / 2f);
+		shader.setLocalMatrix(shaderMatrix);
+		path.reset();
+		if (!circular && cornerRadii != null) {
+			path.addRoundRect(drawRect, cornerRadii, Path.Direction.CW);
+		}
+		dirty = false;
+	}
+
+	@Override
+	public void draw(Canvas canvas) {
+		if (bitmap.isRecycled()) {
+			return;
+		}
+		if (dirty) {
+			updateShape();
+		}
+		if (circular) {
+			canvas.drawOval(drawRect, paint);
+		} else if (cornerRadii != null) {
+			canvas.drawPath(path, paint);
+		} else if (cornerRadius > 0) {
+			canvas.drawRoundRect(drawRect, cornerRadius, cornerRadius, paint);
+		} else {
+			canvas.drawRect(drawRect, paint);
+		}
+	}
+
+	/**
+	 * 按固有尺寸把当前效果绘制为位图。结果会缓存，圆角参数改变前重复调用返回同一个位图；
+	 * 参数改变后旧结果归还复用池，因此不要长期持有返回值
+	 */
+	public Bitmap materialize() {
+		if (materialized != null && !materialized.isRecycled()) {
+			return materialized;
+		}
+		int width = getIntrinsicWidth();
+		int height = getIntrinsicHeight();
+		Bitmap output = BitmapUtil.getBitmapPool().get(width, height, Bitmap.Config.ARGB_8888);
+		if (output == null) {
+			output = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+		}
+		Rect oldBounds = new Rect(getBounds());
+		setBounds(0, 0, width, height);
+		draw(new Canvas(output));
+		setBounds(oldBounds);
+		materialized = output;
+		return output;
+	}
+
+	private void releaseMaterialized() {
+		if (materialized != null) {
+			BitmapUtil.release(materialized);
+			materialized = null;
+		}
+	}
+
+	@Override
+	public int getIntrinsicWidth() {
+		return circular ? Math.min(bitmapWidth, bitmapHeight) : bitmapWidth;
+	}
+
+	@Override
+	public int getIntrinsicHeight() {
+		return circular ? Math.min(bitmapWidth, bitmapHeight) : bitmapHeight;
+	}
+
+	@Override
+	public void setAlpha(int alpha) {
+		if (paint.getAlpha() != alpha) {
+			paint.setAlpha(alpha);
+			invalidateSelf();
+		}
+	}
+
+	@Override
+	public int getAlpha() {
+		return paint.getAlpha();
+	}
+
+	@Override
+	public void setColorFilter(ColorFilter colorFilter) {
+		paint.setColorFilter(colorFilter);
+		invalidateSelf();
+	}
+
+	@Override
+	public void setFilterBitmap(boolean filter) {
+		paint.setFilterBitmap(filter);
+		invalidateSelf();
+	}
+
+	@Override
+	public void setDither(boolean dither) {
+		paint.setDither(dither);
+		invalidateSelf();
+	}
+
+	@Override
+	public int getOpacity() {
+		return PixelFormat.TRANSLUCENT;
+	}
+}
@@ -1,18 +1,38 @@
 package com.suwec.framework.utils;
 
+import android.annotation.TargetApi;
 import android.app.Activity;
 import android.content.Context;
 import android.graphics.Bitmap;
+import android.graphics.Canvas;
 import android.graphics.Rect;
-import android.util.DisplayMetrics;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.view.PixelCopy;
 import android.view.View;
-import android.view.WindowManager;
+import android.view.Window;
 
 /**
  * 获得屏幕相关的辅助类
  * 
  */
 public class ScreenUtils {
+	private static final String TAG = "ScreenUtils";
+
+	/**
+	 * 异步截图结果回调(主线程)
+	 */
+	public interface SnapshotCallback {
+		/**
+		 * @param bitmap
+		 *            截图，由调用者持有，不再使用时可调用{@link BitmapUtil#release(Bitmap)}归还复用池
+		 */
+		void onSnapshot(Bitmap bitmap);
+
+		void onFailed();
+	}
+
 	private ScreenUtils() {
 		/* cannot be instantiated */
 		throw new UnsupportedOperationException("cannot be instantiated");
@@ -25,11 +45,8 @@ public class ScreenUtils {
 	 * @return
 	 */
 	public static int getScreenWidth(Context context) {
-		WindowManager wm = (WindowManager) context
-				.getSystemService(Context.WINDOW_SERVICE);
-		DisplayMetrics outMetrics = new DisplayMetrics();
-		wm.getDefaultDisplay().getMetrics(outMetrics);
-		return outMetrics.widthPixels;
+		// Resources中的DisplayMetrics随配置更新，直接读取，不必每次新建
+		return context.getResources().getDisplayMetrics().widthPixels;
 	}
 
 	/**
@@ -39,11 +56,8 @@ public class ScreenUtils {
 	 * @return
 	 */
 	public static int getScreenHeight(Context context) {
-		WindowManager wm = (WindowManager) context
-				.getSystemService(Context.WINDOW_SERVICE);
-		DisplayMetrics outMetrics = new DisplayMetrics();
-		wm.getDefaultDisplay().getMetrics(outMetrics);
-		return outMetrics.heightPixels;
+		// Resources中的DisplayMetrics随配置更新，直接读取，不必每次新建
+		return context.getResources().getDisplayMetrics().heightPixels;
 	}
 
 	/**
@@ -71,45 +85,129 @@ public class ScreenUtils {
 	 * 获取当前屏幕截图，包含状态栏
 	 * 
 	 * @param activity
-	 * @return
+	 * @return 由调用者持有的截图，不再使用时可调用{@link BitmapUtil#release(Bitmap)}归还复用池
 	 */
 	public static Bitmap snapShotWithStatusBar(Activity activity) {
 		View view = activity.getWindow().getDecorView();
-		view.setDrawingCacheEnabled(true);
-		view.buildDrawingCache();
-		Bitmap bmp = view.getDrawingCache();
-		int width = getScreenWidth(activity);
-		int height = getScreenHeight(activity);
-		Bitmap bp = null;
-		bp = Bitmap.createBitmap(bmp, 0, 0, width, height);
-		view.destroyDrawingCache();
-		return bp;
-
+		return drawWindow(view, new Rect(0, 0, view.getWidth(), view.getHeight()), 1f);
 	}
 
 	/**
 	 * 获取当前屏幕截图，不包含状态栏
 	 * 
 	 * @param activity
-	 * @return
+	 * @return 由调用者持有的截图，不再使用时可调用{@link BitmapUtil#release(Bitmap)}归还复用池
 	 */
 	public static Bitmap snapShotWithoutStatusBar(Activity activity) {
 		View view = activity.getWindow().getDecorView();
-		view.setDrawingCacheEnabled(true);
-		view.buildDrawingCache();
-		Bitmap bmp = view.getDrawingCache();
-		Rect frame = new Rect();
-		activity.getWindow().getDecorView().getWindowVisibleDisplayFrame(frame);
-		int statusBarHeight = frame.top;
+		return drawWindow(view, getContentFrame(view), 1f);
+	}
+
+	/**
+	 * 异步截取窗口，不包含状态栏
+	 *
+	 * @see #snapShotAsync(Activity, Rect, float, SnapshotCallback)
+	 */
+	public static void snapShotWithoutStatusBarAsync(Activity activity, float scale, SnapshotCallback callback) {
+		snapShotAsync(activity, getContentFrame(activity.getWindow().getDecorView()), scale, callback);
+	}
 
-		int width = getScreenWidth(activity);
-		int height = getScreenHeight(activity);
-		Bitmap bp = null;
-		bp = Bitmap.createBitmap(bmp, 0, statusBarHeight, width, height
-				- statusBarHeight);
-		view.destroyDrawingCache();
-		return bp;
+	/**
+	 * 异步截取窗口。API 26+通过PixelCopy从窗口的Surface复制(包含硬件绘制的内容，不阻塞主线程绘制)，
+	 * 复制时直接缩放到目标尺寸；更低版本或复制失败时退回在主线程绘制View树。截图写入复用池中的位图
+	 *
+	 * @param activity
+	 *            需要截图的页面，窗口须已显示
+	 * @param crop
+	 *            截取的区域(窗口坐标)，为null时截取整个窗口
+	 * @param scale
+	 *            输出缩放比例，如0.5表示宽高各为一半
+	 * @param callback
+	 *            结果回调(主线程)
+	 */
+	public static void snapShotAsync(Activity activity, Rect crop, float scale, SnapshotCallback callback) {
+		Window window = activity.getWindow();
+		View view = window.getDecorView();
+		Rect source = crop != null ? new Rect(crop) : new Rect(0, 0, view.getWidth(), view.getHeight());
+		int width = Math.round(source.width() * scale);
+		int height = Math.round(source.height() * scale);
+		if (width <= 0 || height <= 0) {
+			callback.onFailed();
+			return;
+		}
+		if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+			requestPixelCopy(window, source, width, height, scale, callback);
+		} else {
+			postDrawWindow(view, source, scale, callback);
+		}
+	}
+
+	@TargetApi(Build.VERSION_CODES.O)
+	private static void requestPixelCopy(final Window window, final Rect source, int width, int height,
+			final float scale, final SnapshotCallback callback) {
+		final Bitmap output = obtainBitmap(width, height);
+		PixelCopy.request(window, source, output, new PixelCopy.OnPixelCopyFinishedListener() {
+			@Override
+			public void onPixelCopyFinished(int result) {
+				if (result == PixelCopy.SUCCESS) {
+					callback.onSnapshot(output);
+				} else {
+					Logs.w(TAG, "PixelCopy failed: " + result);
+					BitmapUtil.release(output);
+					postDrawWindow(window.getDecorView(), source, scale, callback);
+				}
+			}
+		}, new Handler(Looper.getMainLooper()));
+	}
+
+	/**
+	 * 在下一个主线程消息中绘制View树，避免在布局或绘制过程中截图
+	 */
+	private static void postDrawWindow(final View view, final Rect source, final float scale,
+			final SnapshotCallback callback) {
+		view.post(new Runnable() {
+			@Override
+			public void run() {
+				Bitmap bitmap = drawWindow(view, source, scale);
+				if (bitmap != null) {
+					callback.onSnapshot(bitmap);
+				} else {
+					callback.onFailed();
+				}
+			}
+		});
+	}
+
+	/**
+	 * 将View树的指定区域按比例绘制到复用池中的位图(软件绘制，不使用绘制缓存)
+	 */
+	private static Bitmap drawWindow(View view, Rect source, float scale) {
+		int width = Math.round(source.width() * scale);
+		int height = Math.round(source.height() * scale);
+		if (width <= 0 || height <= 0) {
+			return null;
+		}
+		Bitmap output = obtainBitmap(width, height);
+		Canvas canvas = new Canvas(output);
+		canvas.scale(scale, scale);
+		canvas.translate(-source.left, -source.top);
+		view.draw(canvas);
+		canvas.setBitmap(null);
+		return output;
+	}
+
+	/**
+	 * 状态栏以下的可见区域
+	 */
+	private static Rect getContentFrame(View decorView) {
+		Rect frame = new Rect();
+		decorView.getWindowVisibleDisplayFrame(frame);
+		return new Rect(0, frame.top, decorView.getWidth(), decorView.getHeight());
+	}
 
+	private static Bitmap obtainBitmap(int width, int height) {
+		Bitmap bitmap = BitmapUtil.getBitmapPool().get(width, height, Bitmap.Config.ARGB_8888);
+		return bitmap != null ? bitmap : Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
 	}
 
 	public static int getHeightByView(View view){
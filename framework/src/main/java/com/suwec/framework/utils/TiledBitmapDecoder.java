@@ -0,0 +1,343 @@
+package com.suwec.framework.utils;
+
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.BitmapRegionDecoder;
+import android.graphics.Canvas;
+import android.graphics.Matrix;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.RectF;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.util.DisplayMetrics;
+import android.util.LruCache;
+
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 超大图片分块解码
+ * <p>
+ * 基于BitmapRegionDecoder，只解码当前可见区域、当前缩放比例对应采样率的分块，分块按字节数LRU缓存。
+ * 淘汰的分块可能仍被当前帧(或硬件加速的显示列表)引用，不归还位图复用池，交给GC回收。底层先绘制一张整图缩略图，分块在后台线程解码完成后回调刷新，
+ * 平移缩放时占用的内存始终限制在几屏像素以内。
+ * </p>
+ * 用法(在View中)：
+ * <pre>
+ * decoder = new TiledBitmapDecoder(path, callback);
+ * // onDraw
+ * decoder.draw(canvas, imageMatrix, getWidth(), getHeight());
+ * // 不再显示时
+ * decoder.recycle();
+ * </pre>
+ */
+public class TiledBitmapDecoder {
+	private static final String TAG = "TiledBitmapDecoder";
+	/** 默认分块边长(解码后的像素) */
+	public static final int DEFAULT_TILE_SIZE = 512;
+	/** 默认缓存容量为多少屏的ARGB_8888像素 */
+	private static final int DEFAULT_CACHE_SCREENS = 3;
+
+	/**
+	 * 分块解码完成的回调(主线程)，通常在其中调用View.invalidate()
+	 */
+	public interface Callback {
+		void onTileLoaded();
+	}
+
+	private final BitmapRegionDecoder decoder;
+	private final int imageWidth;
+	private final int imageHeight;
+	private final int tileSize;
+	private final Callback callback;
+	private final Handler mainHandler = new Handler(Looper.getMainLooper());
+	/** BitmapRegionDecoder内部串行解码，单线程即可 */
+	private final ExecutorService executor;
+	private final LruCache<Long, Bitmap> tiles;
+	/** 已提交解码、尚未完成的分块 */
+	private final Set<Long> pending = new HashSet<Long>();
+	private final Paint paint = new Paint(Paint.FILTER_BITMAP_FLAG);
+
+	/** 整图缩略图，作为分块未加载完成时的底图 */
+	private volatile Bitmap baseLayer;
+	private final int baseSampleSize;
+	private boolean baseRequested;
+
+	/** 最近一次绘制时的采样率和可见区域，后台解码前据此跳过已经不可见的分块 */
+	private volatile int visibleSampleSize;
+	private final Rect visibleRect = new Rect();
+	private volatile boolean recycled;
+
+	// 以下对象只在绘制线程使用，避免每帧分配
+	private final Matrix inverse = new Matrix();
+	private final RectF visibleF = new RectF();
+	private final RectF tileF = new RectF();
+	private final float[] matrixValues = new float[9];
+
+	/**
+	 * 使用默认分块大小和默认缓存容量(约三屏像素)
+	 */
+	public TiledBitmapDecoder(String path, Callback callback) throws IOException {
+		this(path, DEFAULT_TILE_SIZE, defaultCacheSize(), callback);
+	}
+
+	/**
+	 * @param path
+	 *            图片路径(JPEG/PNG/WEBP)
+	 * @param tileSize
+	 *            分块边长(解码后的像素)
+	 * @param maxCacheBytes
+	 *            分块缓存容量(字节)
+	 * @param callback
+	 *            分块解码完成的回调，可以为null
+	 */
+	public TiledBitmapDecoder(String path, int tileSize, int maxCacheBytes, Callback callback) throws IOException {
+		this.decoder = BitmapRegionDecoder.newInstance(path, false);
+		this.imageWidth = decoder.getWidth();
+		this.imageHeight = decoder.getHeight();
+		this.tileSize = tileSize;
+		this.callback = callback;
+		DisplayMetrics metrics = Resources.getSystem().getDisplayMetrics();
+		// 缩略图不超过屏幕长边
+		int maxSide = Math.max(metrics.widthPixels, metrics.heightPixels);
+		int sampleSize = 1;
+		while (Math.max(imageWidth, imageHeight) / sampleSize > maxSide) {
+			sampleSize <<= 1;
+		}
+		this.baseSampleSize = sampleSize;
+		this.tiles = new LruCache<Long, Bitmap>(maxCacheBytes) {
+			@Override
+			protected int sizeOf(Long key, Bitmap value) {
+				return value.getAllocationByteCount();
+			}
+		};
+		this.executor = new ThreadPoolExecutor(1, 1, 10, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+				new ThreadFactory() {
+					@Override
+					public Thread newThread(final Runnable r) {
+						return new Thread(new Runnable() {
+							@Override
+							public void run() {
+								Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+								r.run();
+							}
+						}, TAG);
+					}
+				});
+		((ThreadPoolExecutor) executor).allowCoreThreadTimeOut(true);
+	}
+
+	private static int defaultCacheSize() {
+		DisplayMetrics metrics = Resources.getSystem().getDisplayMetrics();
+		return metrics.widthPixels * metrics.heightPixels * 4 * DEFAULT_CACHE_SCREENS;
+	}
+
+	public int getImageWidth() {
+		return imageWidth;
+	}
+
+	public int getImageHeight() {
+		return imageHeight;
+	}
+
+	/**
+	 * 绘制当前可见部分，必须在同一个线程(通常是主线程)中调用
+	 *
+	 * @param canvas
+	 *            画布
+	 * @param matrix
+	 *            原图坐标到画布坐标的变换(包含平移和缩放)
+	 * @param viewWidth
+	 *            可见区域宽度
+	 * @param viewHeight
+	 *            可见区域高度
+	 */
+	public void draw(Canvas canvas, Matrix matrix, int viewWidth, int viewHeight) {
+		if (recycled) {
+			return;
+		}
+		matrix.getValues(matrixValues);
+		float scale = (float) Math.hypot(matrixValues[Matrix.MSCALE_X], matrixValues[Matrix.MSKEW_Y]);
+		int sampleSize = BitmapUtil.computeSampleSizeForScale(scale);
+		// 可见区域换算到原图坐标
+		if (!matrix.invert(inverse)) {
+			return;
+		}
+		visibleF.set(0, 0, viewWidth, viewHeight);
+		inverse.mapRect(visibleF);
+		if (!visibleF.intersect(0, 0, imageWidth, imageHeight)) {
+			return;
+		}
+		synchronized (visibleRect) {
+			visibleF.roundOut(visibleRect);
+		}
+		visibleSampleSize = sampleSize;
+
+		int saveCount = canvas.save();
+		canvas.concat(matrix);
+		Bitmap base = baseLayer;
+		if (base != null) {
+			tileF.set(0, 0, imageWidth, imageHeight);
+			canvas.drawBitmap(base, null, tileF, paint);
+		} else {
+			requestBaseLayer();
+		}
+		if (sampleSize < baseSampleSize) {
+			// 缩略图的清晰度不够时才需要分块
+			int tileSpan = tileSize * sampleSize;// 一个分块覆盖的原图边长
+			int firstColumn = (int) (visibleF.left / tileSpan);
+			int lastColumn = (int) Math.min((visibleF.right - 1) / tileSpan, (imageWidth - 1) / tileSpan);
+			int firstRow = (int) (visibleF.top / tileSpan);
+			int lastRow = (int) Math.min((visibleF.bottom - 1) / tileSpan, (imageHeight - 1) / tileSpan);
+			for (int row = firstRow; row <= lastRow; row++) {
+				for (int column = firstColumn; column <= lastColumn; column++) {
+					long key = tileKey(sampleSize, column, row);
+					Bitmap tile = tiles.get(key);
+					if (tile != null && !tile.isRecycled()) {
+						tileF.set(column * tileSpan, row * tileSpan, Math.min((column + 1) * tileSpan, imageWidth),
+								Math.min((row + 1) * tileSpan, imageHeight));
+						canvas.drawBitmap(tile, null, tileF, paint);
+					} else {
+						requestTile(key, sampleSize, column, row);
+					}
+				}
+			}
+		}
+		canvas.restoreToCount(saveCount);
+	}
+
+	/**
+	 * 释放所有分块、缩略图和解码器。之后不能再使用
+	 */
+	public void recycle() {
+		recycled = true;
+		executor.shutdownNow();
+		synchronized (decoder) {
+			// 分块和缩略图可能仍在绘制，只丢弃引用，不放回复用池
+			tiles.evictAll();
+			baseLayer = null;
+			decoder.recycle();
+		}
+	}
+
+	/**
+	 * 响应内存紧张：清空分块缓存，只保留缩略图
+	 */
+	public void trimMemory() {
+		tiles.evictAll();
+	}
+
+	private void requestBaseLayer() {
+		if (baseRequested) {
+			return;
+		}
+		baseRequested = true;
+		executor.execute(new Runnable() {
+			@Override
+			public void run() {
+				Bitmap bitmap = decodeRegion(new Rect(0, 0, imageWidth, imageHeight), baseSampleSize);
+				if (bitmap != null) {
+					baseLayer = bitmap;
+					notifyLoaded();
+				}
+			}
+		});
+	}
+
+	private void requestTile(final long key, final int sampleSize, final int column, final int row) {
+		synchronized (pending) {
+			if (!pending.add(key)) {
+				return;
+			}
+		}
+		executor.execute(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					int tileSpan = tileSize * sampleSize;
+					Rect region = new Rect(column * tileSpan, row * tileSpan, Math.min((column + 1) * tileSpan, imageWidth),
+							Math.min((row + 1) * tileSpan, imageHeight));
+					if (!isStillVisible(region, sampleSize)) {
+						return;// 排队期间已经平移或缩放离开，跳过
+					}
+					Bitmap tile = decodeRegion(region, sampleSize);
+					if (tile != null) {
+						tiles.put(key, tile);
+						notifyLoaded();
+					}
+				} finally {
+					synchronized (pending) {
+						pending.remove(key);
+					}
+				}
+			}
+		});
+	}
+
+	private boolean isStillVisible(Rect region, int sampleSize) {
+		if (recycled || sampleSize != visibleSampleSize) {
+			return false;
+		}
+		synchronized (visibleRect) {
+			return Rect.intersects(region, visibleRect);
+		}
+	}
+
+	private Bitmap decodeRegion(Rect region, int sampleSize) {
+		BitmapFactory.Options options = new BitmapFactory.Options();
+		options.inSampleSize = sampleSize;
+		options.inPreferredConfig = Bitmap.Config.ARGB_8888;
+		options.inMutable = true;
+		options.inBitmap = BitmapUtil.getBitmapPool().getDirty((region.width() + sampleSize - 1) / sampleSize,
+				(region.height() + sampleSize - 1) / sampleSize, options.inPreferredConfig);
+		Bitmap candidate = options.inBitmap;
+		Bitmap bitmap = null;
+		synchronized (decoder) {
+			if (recycled) {
+				BitmapUtil.release(candidate);
+				return null;
+			}
+			try {
+				bitmap = decoder.decodeRegion(region, options);
+			} catch (IllegalArgumentException e) {
+				Logs.w(TAG, "inBitmap reuse failed: " + e.getMessage());
+			}
+			// 复用失败(抛异常或返回null)时不带inBitmap重新解码
+			if (bitmap == null && options.inBitmap != null) {
+				options.inBitmap = null;
+				bitmap = decoder.decodeRegion(region, options);
+			}
+		}
+		if (candidate != null && candidate != bitmap) {
+			BitmapUtil.release(candidate);
+		}
+		return bitmap;
+	}
+
+	private void notifyLoaded() {
+		if (callback == null) {
+			return;
+		}
+		mainHandler.post(new Runnable() {
+			@Override
+			public void run() {
+				if (!recycled) {
+					callback.onTileLoaded();
+				}
+			}
+		});
+	}
+
+	private static long tileKey(int sampleSize, int column, int row) {
+		return ((long) sampleSize << 48) | ((long) column << 24) | row;
+	}
+}
@@ -0,0 +1,295 @@
+package com.suwec.framework.utils;
+
+import android.graphics.Bitmap;
+import android.graphics.Bitmap.Config;
+import android.graphics.BitmapShader;
+import android.graphics.Canvas;
+import android.graphics.Matrix;
+import android.graphics.Paint;
+import android.graphics.RectF;
+import android.graphics.Shader;
+import android.media.ExifInterface;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 可组合的位图变换
+ * <p>
+ * 缩放、旋转、翻转等几何变换全部合并到同一个Matrix中，圆角/圆形裁剪通过BitmapShader完成，
+ * 整条变换链只绘制一次、只分配一个输出位图(从复用池中取)，不产生中间位图。
+ * </p>
+ * 示例：
+ * <pre>
+ * Bitmap avatar = new Transformation().scaleToWidth(200).rotate(90).circleCrop().apply(photo, true);
+ * </pre>
+ */
+public class Transformation implements ImagePipeline.Transform {
+	private static final int OP_SCALE = 1;
+	private static final int OP_SCALE_TO_WIDTH = 2;
+	private static final int OP_RESIZE = 3;
+	private static final int OP_ROTATE = 4;
+
+	/** 绘制用的画布和画笔按线程复用，避免每次变换都新建 */
+	private static final ThreadLocal<Canvas> sCanvas = new ThreadLocal<Canvas>() {
+		@Override
+		protected Canvas initialValue() {
+			return new Canvas();
+		}
+	};
+	private static final ThreadLocal<Paint> sPaint = new ThreadLocal<Paint>() {
+		@Override
+		protected Paint initialValue() {
+			return new Paint();
+		}
+	};
+
+	private final List<float[]> ops = new ArrayList<float[]>();
+	private float cornerRadius;
+	private float cornerRatio;
+	private boolean circleCrop;
+
+	/**
+	 * 按比例缩放
+	 */
+	public Transformation scale(float sx, float sy) {
+		ops.add(new float[] { OP_SCALE, sx, sy });
+		return this;
+	}
+
+	/**
+	 * 等比例缩放至指定宽度(以前面变换后的宽度为准)，与{@link BitmapUtil#setBitmapSize(Bitmap, int)}一致
+	 */
+	public Transformation scaleToWidth(int width) {
+		ops.add(new float[] { OP_SCALE_TO_WIDTH, width, 0 });
+		return this;
+	}
+
+	/**
+	 * 缩放至指定宽高(不保持比例)
+	 */
+	public Transformation resize(int width, int height) {
+		ops.add(new float[] { OP_RESIZE, width, height });
+		return this;
+	}
+
+	/**
+	 * 顺时针旋转任意角度，输出尺寸为旋转后的外接矩形
+	 */
+	public Transformation rotate(float degrees) {
+		if (degrees % 360 != 0) {
+			ops.add(new float[] { OP_ROTATE, degrees, 0 });
+		}
+		return this;
+	}
+
+	/**
+	 * 水平翻转(左右镜像)
+	 */
+	public Transformation flipHorizontal() {
+		return scale(-1, 1);
+	}
+
+	/**
+	 * 垂直翻转(上下镜像)
+	 */
+	public Transformation flipVertical() {
+		return scale(1, -1);
+	}
+
+	/**
+	 * 按EXIF方向标记摆正图片(含镜像的情况)
+	 *
+	 * @param orientation
+	 *            ExifInterface.ORIENTATION_*
+	 */
+	public Transformation exifOrientation(int orientation) {
+		switch (orientation) {
+		case ExifInterface.ORIENTATION_FLIP_HORIZONTAL:
+			return flipHorizontal();
+		case ExifInterface.ORIENTATION_ROTATE_180:
+			return rotate(180);
+		case ExifInterface.ORIENTATION_FLIP_VERTICAL:
+			return flipVertical();
+		case ExifInterface.ORIENTATION_TRANSPOSE:
+			return rotate(90).flipHorizontal();
+		case ExifInterface.ORIENTATION_ROTATE_90:
+			return rotate(90);
+		case ExifInterface.ORIENTATION_TRANSVERSE:
+			return rotate(-90).flipHorizontal();
+		case ExifInterface.ORIENTATION_ROTATE_270:
+			return rotate(-90);
+		default:
+			return this;
+		}
+	}
+
+	/**
+	 * 圆角
+	 *
+	 * @param radius
+	 *            圆角半径(输出图片的像素)
+	 */
+	public Transformation roundCorners(float radius) {
+		this.cornerRadius = radius;
+		return this;
+	}
+
+	/**
+	 * 按比例设置圆角，与{@link BitmapUtil#getRoundedCornerBitmap(Bitmap, float)}的参数含义相同
+	 *
+	 * @param ratio
+	 *            圆角直径和输出图片较短边长的比例，1表示较短边完全为半圆
+	 */
+	public Transformation roundCornersRatio(float ratio) {
+		this.cornerRatio = ratio;
+		return this;
+	}
+
+	/**
+	 * 居中裁剪为正方形后绘制为圆形
+	 */
+	public Transformation circleCrop() {
+		this.circleCrop = true;
+		return this;
+	}
+
+	/**
+	 * 是否不包含任何变换
+	 */
+	public boolean isIdentity() {
+		return ops.isEmpty() && cornerRadius <= 0 && cornerRatio <= 0 && !circleCrop;
+	}
+
+	@Override
+	public Bitmap transform(Bitmap source) {
+		return apply(source, false);
+	}
+
+	/**
+	 * 执行变换
+	 *
+	 * @param source
+	 *            原图
+	 * @param recycleSource
+	 *            原图是否由调用者自己创建、变换后不再需要。为true时原图在绘制后归还复用池
+	 * @return 变换结果。没有任何变换时直接返回原图；原图是HARDWARE位图且无法复制时返回null
+	 */
+	public Bitmap apply(Bitmap source, boolean recycleSource) {
+		if (source == null || isIdentity()) {
+			return source;
+		}
+		if (BitmapConfigPolicy.isHardware(source.getConfig())) {
+			// HARDWARE位图的像素不可访问，不能在软件画布或BitmapShader上绘制，先复制为ARGB_8888
+			Bitmap software = source.copy(Config.ARGB_8888, false);
+			if (software == null) {
+				return null;
+			}
+			if (recycleSource) {
+				BitmapUtil.release(source);
+			}
+			return apply(software, true);
+		}
+		int srcWidth = source.getWidth();
+		int srcHeight = source.getHeight();
+		Matrix matrix = new Matrix();
+		RectF bounds = new RectF(0, 0, srcWidth, srcHeight);
+		for (float[] op : ops) {
+			switch ((int) op[0]) {
+			case OP_SCALE:
+				matrix.postScale(op[1], op[2]);
+				break;
+			case OP_SCALE_TO_WIDTH:
+				float scale = op[1] / bounds.width();
+				matrix.postScale(scale, scale);
+				break;
+			case OP_RESIZE:
+				matrix.postScale(op[1] / bounds.width(), op[2] / bounds.height());
+				break;
+			case OP_ROTATE:
+				matrix.postRotate(op[1]);
+				break;
+			default:
+				break;
+			}
+			// 重新计算原图经过当前变换后的外接矩形，供后续按尺寸计算的变换使用
+			bounds.set(0, 0, srcWidth, srcHeight);
+			matrix.mapRect(bounds);
+		}
+		// 把外接矩形移回原点
+		matrix.postTranslate(-bounds.left, -bounds.top);
+		int width = Math.max(1, Math.round(bounds.width()));
+		int height = Math.max(1, Math.round(bounds.height()));
+		if (circleCrop) {
+			// 居中裁剪为正方形
+			int side = Math.min(width, height);
+			matrix.postTranslate(-(width - side) / 2f, -(height - side) / 2f);
+			width = side;
+			height = side;
+		}
+
+		Config config = chooseConfig(source);
+		Bitmap output = BitmapUtil.getBitmapPool().get(width, height, config);
+		if (output == null) {
+			output = Bitmap.createBitmap(width, height, config);
+		}
+		Canvas canvas = sCanvas.get();
+		Paint paint = sPaint.get();
+		paint.reset();
+		paint.setAntiAlias(true);
+		paint.setFilterBitmap(true);
+		canvas.setBitmap(output);
+		try {
+			float radius = cornerRadius > 0 ? cornerRadius : cornerRatio * Math.min(width, height) / 2f;
+			if (circleCrop || radius > 0) {
+				BitmapShader shader = new BitmapShader(source, Shader.TileMode.CLAMP, Shader.TileMode.CLAMP);
+				shader.setLocalMatrix(matrix);
+				paint.setShader(shader);
+				RectF rect = new RectF(0, 0, width, height);
+				if (circleCrop) {
+					canvas.drawOval(rect, paint);
+				} else {
+					canvas.drawRoundRect(rect, radius, radius, paint);
+				}
+			} else {
+				canvas.drawBitmap(source, matrix, paint);
+			}
+		} finally {
+			canvas.setBitmap(null);
+			paint.setShader(null);
+		}
+		if (recycleSource && source != output) {
+			BitmapUtil.release(source);
+		}
+		return output;
+	}
+
+	/**
+	 * 有圆角、非直角旋转或原图本身带透明通道时需要ARGB_8888，否则沿用原图的Config
+	 */
+	private Config chooseConfig(Bitmap source) {
+		Config config = source.getConfig();
+		if (config == null || config == Config.ALPHA_8 || BitmapPool.getBytesPerPixel(config) == 0) {
+			return Config.ARGB_8888;
+		}
+		if (circleCrop || cornerRadius > 0 || cornerRatio > 0 || source.hasAlpha()) {
+			return Config.ARGB_8888;
+		}
+		for (float[] op : ops) {
+			if (op[0] == OP_ROTATE && op[1] % 90 != 0) {
+				return Config.ARGB_8888;
+			}
+		}
+		return config;
+	}
+
+	@Override
+	public String getKey() {
+		StringBuilder sb = new StringBuilder("Transformation(");
+		for (float[] op : ops) {
+			sb.append((int) op[0]).append(':').append(op[1]).append(',').append(op[2]).append(';');
+		}
+		sb.append("r=").append(cornerRadius).append(";ratio=").append(cornerRatio).append(";circle=").append(circleCrop).append(')');
+		return sb.toString();
+	}
+}
@@ -0,0 +1,190 @@
+package com.suwec.framework.utils;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Base64Codec与java.util.Base64的对照测试，覆盖所有标志位组合和流式分块编解码
+ */
+public class Base64CodecTest {
+	private static final int[] FLAGS = {
+			Base64Codec.DEFAULT,
+			Base64Codec.NO_PADDING,
+			Base64Codec.NO_WRAP,
+			Base64Codec.NO_PADDING | Base64Codec.NO_WRAP,
+			Base64Codec.URL_SAFE,
+			Base64Codec.URL_SAFE | Base64Codec.NO_PADDING,
+			Base64Codec.URL_SAFE | Base64Codec.NO_WRAP,
+			Base64Codec.URL_SAFE | Base64Codec.NO_PADDING | Base64Codec.NO_WRAP
+	};
+	/** 覆盖不足一组、整行、跨行和跨流缓冲区(8KB)的长度 */
+	private static final int[] LENGTHS = { 0, 1, 2, 3, 4, 5, 56, 57, 58, 113, 114, 115, 300, 6143, 6144, 6145, 20000 };
+
+	private final Random random = new Random(20261017L);
+
+	/**
+	 * java.util.Base64的编码结果按标志位换行：每76个字符及末尾加'\n'，与android.util.Base64相同
+	 */
+	private static String expected(byte[] data, int flags) {
+		Base64.Encoder encoder = (flags & Base64Codec.URL_SAFE) != 0 ? Base64.getUrlEncoder() : Base64.getEncoder();
+		if ((flags & Base64Codec.NO_PADDING) != 0) {
+			encoder = encoder.withoutPadding();
+		}
+		String encoded = encoder.encodeToString(data);
+		if ((flags & Base64Codec.NO_WRAP) != 0 || encoded.isEmpty()) {
+			return encoded;
+		}
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < encoded.length(); i += 76) {
+			sb.append(encoded, i, Math.min(encoded.length(), i + 76)).append('\n');
+		}
+		return sb.toString();
+	}
+
+	private byte[] randomBytes(int length) {
+		byte[] data = new byte[length];
+		random.nextBytes(data);
+		return data;
+	}
+
+	@Test
+	public void encodeMatchesJdk() {
+		for (int flags : FLAGS) {
+			for (int length : LENGTHS) {
+				byte[] data = randomBytes(length);
+				String expected = expected(data, flags);
+				String message = "flags=" + flags + ", length=" + length;
+				assertEquals(message, expected, Base64Codec.encodeToString(data, flags));
+				assertEquals(message, expected.length(), Base64Codec.encodedLength(length, flags));
+
+				// 带偏移量编码到调用者提供的数组
+				byte[] src = new byte[length + 3];
+				System.arraycopy(data, 0, src, 2, length);
+				byte[] bytes = new byte[expected.length() + 5];
+				int count = Base64Codec.encode(src, 2, length, bytes, 5, flags);
+				assertEquals(message, expected, new String(bytes, 5, count, StandardCharsets.US_ASCII));
+				char[] chars = new char[expected.length() + 1];
+				count = Base64Codec.encode(src, 2, length, chars, 1, flags);
+				assertEquals(message, expected, new String(chars, 1, count));
+			}
+		}
+	}
+
+	@Test
+	public void decodeMatchesJdk() {
+		for (int flags : FLAGS) {
+			for (int length : LENGTHS) {
+				byte[] data = randomBytes(length);
+				String message = "flags=" + flags + ", length=" + length;
+				assertArrayEquals(message, data, Base64Codec.decode(expected(data, flags)));
+
+				String encoded = Base64Codec.encodeToString(data, flags);
+				StringBuilder sb = new StringBuilder("  ").append(encoded).append(' ');
+				byte[] dst = new byte[Base64Codec.maxDecodedLength(sb.length()) + 4];
+				int count = Base64Codec.decode(sb, 2, sb.length(), dst, 4);
+				assertEquals(message, length, count);
+				for (int i = 0; i < length; i++) {
+					assertEquals(message, data[i], dst[4 + i]);
+				}
+			}
+		}
+		// MIME编码使用"\r\n"换行，空白字符都被忽略
+		byte[] data = randomBytes(1000);
+		assertArrayEquals(data, Base64Codec.decode(Base64.getMimeEncoder().encodeToString(data)));
+	}
+
+	@Test
+	public void streamEncodeInChunksMatchesJdk() throws IOException {
+		for (int flags : FLAGS) {
+			for (int length : LENGTHS) {
+				byte[] data = randomBytes(length);
+				String expected = expected(data, flags);
+				String message = "flags=" + flags + ", length=" + length;
+
+				ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+				Base64Codec.EncoderOutputStream out = new Base64Codec.EncoderOutputStream(bytes, flags);
+				writeInChunks(out, data);
+				out.finish();
+				assertEquals(message, expected, new String(bytes.toByteArray(), StandardCharsets.US_ASCII));
+
+				StringWriter writer = new StringWriter();
+				out = new Base64Codec.EncoderOutputStream(writer, flags);
+				writeInChunks(out, data);
+				out.close();
+				assertEquals(message, expected, writer.toString());
+			}
+		}
+	}
+
+	@Test
+	public void streamDecodeInChunksMatchesJdk() throws IOException {
+		for (int flags : FLAGS) {
+			for (int length : LENGTHS) {
+				byte[] data = randomBytes(length);
+				Base64Codec.DecoderInputStream in = new Base64Codec.DecoderInputStream(expected(data, flags));
+				ByteArrayOutputStream out = new ByteArrayOutputStream();
+				byte[] buffer = new byte[64];
+				while (true) {
+					int chunk = random.nextInt(8) == 0 ? -1 : 1 + random.nextInt(buffer.length);
+					if (chunk < 0) {
+						int b = in.read();
+						if (b < 0) {
+							break;
+						}
+						out.write(b);
+					} else {
+						int count = in.read(buffer, 0, chunk);
+						if (count < 0) {
+							break;
+						}
+						out.write(buffer, 0, count);
+					}
+				}
+				assertArrayEquals("flags=" + flags + ", length=" + length, data, out.toByteArray());
+			}
+		}
+	}
+
+	/**
+	 * 随机混合单字节写入和不同长度的块写入
+	 */
+	private void writeInChunks(Base64Codec.EncoderOutputStream out, byte[] data) throws IOException {
+		int off = 0;
+		while (off < data.length) {
+			if (random.nextInt(8) == 0) {
+				out.write(data[off++]);
+			} else {
+				int len = Math.min(data.length - off, 1 + random.nextInt(100));
+				out.write(data, off, len);
+				off += len;
+			}
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void decodeRejectsIllegalCharacter() {
+		Base64Codec.decode("QUJD*A==");
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void decodeRejectsDataAfterPadding() {
+		Base64Codec.decode("QQ==QUJD");
+	}
+
+	@Test(expected = IOException.class)
+	public void streamDecodeRejectsIllegalCharacter() throws IOException {
+		Base64Codec.DecoderInputStream in = new Base64Codec.DecoderInputStream("QUJD*A==");
+		while (in.read() >= 0) {
+			// 读到非法字符时抛出异常
+		}
+	}
+}
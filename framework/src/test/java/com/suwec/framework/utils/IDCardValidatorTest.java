@@ -0,0 +1,152 @@
+package com.suwec.framework.utils;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * IDCardValidator的结果码测试，以及char[]/byte[]重载、IdCardInfo.parse与CharSequence版本的一致性
+ */
+public class IDCardValidatorTest {
+
+    /** GB 11643中的示例号码 */
+    private static final String VALID_18 = "11010519491231002X";
+
+    /**
+     * 前17位加上正确的校验码
+     */
+    private static String withCheckCode(String first17) {
+        int[] digits = new int[17];
+        for (int i = 0; i < 17; i++) {
+            digits[i] = first17.charAt(i) - '0';
+        }
+        return first17 + IDCardValidator.checkCode(IDCardValidator.weightedSum(digits));
+    }
+
+    @Test
+    public void validate18ResultCodes() {
+        assertEquals(IDCardValidator.VALID, IDCardValidator.validate18(VALID_18));
+        assertEquals(IDCardValidator.VALID, IDCardValidator.validate18("11010519491231002x"));
+        assertEquals(IDCardValidator.INVALID_CHECK_CODE, IDCardValidator.validate18("110105194912310021"));
+        assertEquals(IDCardValidator.INVALID_CHARACTER, IDCardValidator.validate18("1101051949123100AX"));
+        assertEquals(IDCardValidator.INVALID_CHARACTER, IDCardValidator.validate18("11010519491231002Y"));
+        assertEquals(IDCardValidator.INVALID_LENGTH, IDCardValidator.validate18("11010519491231002"));
+        assertEquals(IDCardValidator.INVALID_LENGTH, IDCardValidator.validate18((CharSequence) null));
+        assertEquals(IDCardValidator.INVALID_BIRTH_DATE, IDCardValidator.validate18(withCheckCode("11010519490230002")));
+    }
+
+    @Test
+    public void validate18DoesNotCheckRegion() {
+        // 代码表只有省级代码，18位号码不检查地区，与原validateIdCard18相同
+        assertEquals(IDCardValidator.VALID, IDCardValidator.validate18(withCheckCode("99010519491231002")));
+        assertEquals(IDCardValidator.VALID, IDCardValidator.validate18("830000199001010020"));
+        assertTrue(IDCardValidateTool.validateIdCard18("830000199001010020"));
+        assertTrue(IDCardValidateTool.validateCard("830000199001010020"));
+    }
+
+    @Test
+    public void validate18AcceptsAnyPastBirthDate() {
+        // 18位号码不受15位号码1930年至去年的限制：当年出生和1930年前出生的号码都合法
+        GregorianCalendar today = new GregorianCalendar();
+        String newborn = String.format("110105%04d%02d%02d002", today.get(Calendar.YEAR),
+                today.get(Calendar.MONTH) + 1, today.get(Calendar.DAY_OF_MONTH));
+        assertEquals(IDCardValidator.VALID, IDCardValidator.validate18(withCheckCode(newborn)));
+        assertEquals(IDCardValidator.VALID, IDCardValidator.validate18(withCheckCode("11010519200101002")));
+        assertEquals(IDCardValidator.VALID, IDCardValidator.validate18(withCheckCode("11010519291231002")));
+        assertTrue(IDCardValidateTool.validateIdCard18(withCheckCode("11010519200101002")));
+        assertNotNull(IdCardInfo.parse(withCheckCode(newborn)));
+
+        today.add(Calendar.DAY_OF_MONTH, 1);
+        String tomorrow = String.format("110105%04d%02d%02d002", today.get(Calendar.YEAR),
+                today.get(Calendar.MONTH) + 1, today.get(Calendar.DAY_OF_MONTH));
+        assertEquals(IDCardValidator.INVALID_BIRTH_DATE, IDCardValidator.validate18(withCheckCode(tomorrow)));
+    }
+
+    @Test
+    public void validate15ResultCodes() {
+        assertEquals(IDCardValidator.VALID, IDCardValidator.validate("110105491231002"));
+        assertEquals(IDCardValidator.INVALID_BIRTH_DATE, IDCardValidator.validate("110105251231002"));
+        assertEquals(IDCardValidator.INVALID_BIRTH_DATE, IDCardValidator.validate("110105490230002"));
+        assertEquals(IDCardValidator.INVALID_REGION, IDCardValidator.validate("990105491231002"));
+        assertEquals(IDCardValidator.INVALID_CHARACTER, IDCardValidator.validate("11010549123100A"));
+    }
+
+    @Test
+    public void validateOtherRegions() {
+        assertEquals(IDCardValidator.VALID, IDCardValidator.validate("A123456789"));// 台湾
+        assertEquals(IDCardValidator.INVALID_CHECK_CODE, IDCardValidator.validate("A123456788"));
+        assertEquals(IDCardValidator.VALID, IDCardValidator.validate("A123456(3)"));// 香港
+        assertEquals(IDCardValidator.VALID, IDCardValidator.validate("a1234563"));
+        assertEquals(IDCardValidator.INVALID_CHECK_CODE, IDCardValidator.validate("A123456(4)"));
+        assertEquals(IDCardValidator.VALID, IDCardValidator.validate("1234567(8)"));// 澳门只校验格式
+        assertEquals(IDCardValidator.INVALID_FORMAT, IDCardValidator.validate("ABC12345"));
+        assertEquals(IDCardValidator.INVALID_LENGTH, IDCardValidator.validate("1234"));
+    }
+
+    @Test
+    public void validateTrimsWhitespace() {
+        assertEquals(IDCardValidator.VALID, IDCardValidator.validate(" " + VALID_18 + "\n"));
+        assertEquals(IDCardValidator.INVALID_LENGTH, IDCardValidator.validate((CharSequence) null));
+    }
+
+    @Test
+    public void arrayOverloadsMatchCharSequence() {
+        Random random = new Random(20261017L);
+        for (int n = 0; n < 20000; n++) {
+            String id = randomId(random);
+            int expected = IDCardValidator.validate18(id);
+            char[] chars = ("  " + id).toCharArray();
+            assertEquals(id, expected, IDCardValidator.validate18(chars, 2, id.length()));
+            byte[] bytes = ("#" + id).getBytes(StandardCharsets.US_ASCII);
+            assertEquals(id, expected, IDCardValidator.validate18(bytes, 1, id.length()));
+            assertEquals(id, expected, IDCardValidator.validate18(new StringBuilder("x").append(id).append('x'), 1,
+                    id.length() + 1));
+        }
+    }
+
+    @Test
+    public void parseAgreesWithValidate() {
+        Random random = new Random(1L);
+        for (int n = 0; n < 20000; n++) {
+            String id = randomId(random);
+            if (random.nextBoolean()) {
+                // 15位：去掉世纪和校验码
+                id = id.substring(0, 6) + id.substring(8, 17);
+            }
+            boolean valid = IDCardValidator.validate(id) == IDCardValidator.VALID;
+            assertEquals(id, valid, IdCardInfo.parse(id) != null);
+        }
+        assertNull(IdCardInfo.parse("110105251231002"));
+        IdCardInfo info = IdCardInfo.parse(VALID_18);
+        assertNotNull(info);
+        assertEquals(19491231, info.getBirthDate());
+        assertEquals(IdCardInfo.GENDER_FEMALE, info.getGender());
+        assertEquals(110105, info.getRegionCode());
+    }
+
+    /**
+     * 随机的18位号码：大部分校验码正确，地区和出生日期有合法也有不合法的
+     */
+    private static String randomId(Random random) {
+        String[] regions = { "110105", "440301", "990000", "310115" };
+        StringBuilder sb = new StringBuilder(regions[random.nextInt(regions.length)]);
+        sb.append(1900 + random.nextInt(130));
+        sb.append(String.format("%02d%02d", random.nextInt(14), random.nextInt(33)));
+        while (sb.length() < 17) {
+            sb.append(random.nextInt(10));
+        }
+        String id = withCheckCode(sb.toString());
+        if (random.nextInt(10) == 0) {
+            id = id.substring(0, 17) + random.nextInt(10);
+        }
+        return id;
+    }
+}
@@ -0,0 +1,89 @@
+package com.suwec.framework.utils;
+
+import org.junit.Test;
+
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.TimeZone;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * IdCardDates的整数日期运算与GregorianCalendar对照
+ */
+public class IdCardDatesTest {
+
+    @Test
+    public void epochDayMatchesCalendar() {
+        GregorianCalendar calendar = new GregorianCalendar(TimeZone.getTimeZone("UTC"));
+        calendar.clear();
+        calendar.set(1900, Calendar.JANUARY, 1);
+        long millisPerDay = 24L * 60 * 60 * 1000;
+        while (calendar.get(Calendar.YEAR) < 2100) {
+            int year = calendar.get(Calendar.YEAR);
+            int month = calendar.get(Calendar.MONTH) + 1;
+            int day = calendar.get(Calendar.DAY_OF_MONTH);
+            int epochDay = (int) (calendar.getTimeInMillis() / millisPerDay);
+            String date = year + "-" + month + "-" + day;
+            assertEquals(date, epochDay, IdCardDates.toEpochDay(year, month, day));
+            assertEquals(date, year * 10000 + month * 100 + day, IdCardDates.toYearMonthDay(epochDay));
+            assertTrue(date, IdCardDates.isValidDate(year, month, day));
+            calendar.add(Calendar.DAY_OF_MONTH, 1);
+        }
+        assertEquals(0, IdCardDates.toEpochDay(1970, 1, 1));
+    }
+
+    @Test
+    public void validDates() {
+        assertTrue(IdCardDates.isLeapYear(2000));
+        assertFalse(IdCardDates.isLeapYear(1900));
+        assertTrue(IdCardDates.isLeapYear(1996));
+        assertTrue(IdCardDates.isValidDate(2000, 2, 29));
+        assertFalse(IdCardDates.isValidDate(1900, 2, 29));
+        assertFalse(IdCardDates.isValidDate(1999, 4, 31));
+        assertFalse(IdCardDates.isValidDate(1999, 0, 1));
+        assertFalse(IdCardDates.isValidDate(1999, 13, 1));
+        assertFalse(IdCardDates.isValidDate(1999, 1, 0));
+    }
+
+    @Test
+    public void fifteenDigitYearsAreNineteenHundreds() {
+        assertEquals(1900, IdCardDates.expandFifteenDigitYear(0));
+        assertEquals(1949, IdCardDates.expandFifteenDigitYear(49));
+        assertEquals(1999, IdCardDates.expandFifteenDigitYear(99));
+    }
+
+    @Test
+    public void birthDateRange() {
+        int currentYear = new GregorianCalendar().get(Calendar.YEAR);
+        assertEquals(currentYear, IdCardDates.currentYear());
+        assertTrue(IdCardDates.isValidBirthDate(IDCardValidateTool.MIN, 1, 1));
+        assertFalse(IdCardDates.isValidBirthDate(IDCardValidateTool.MIN - 1, 12, 31));
+        assertTrue(IdCardDates.isValidBirthDate(currentYear - 1, 12, 31));
+        assertFalse(IdCardDates.isValidBirthDate(currentYear, 1, 1));
+        assertFalse(IdCardDates.isValidBirthDate(1990, 2, 30));
+
+        GregorianCalendar today = new GregorianCalendar();
+        int year = today.get(Calendar.YEAR);
+        int month = today.get(Calendar.MONTH) + 1;
+        int day = today.get(Calendar.DAY_OF_MONTH);
+        assertTrue(IdCardDates.isValidFullBirthDate(year, month, day));
+        assertTrue(IdCardDates.isValidFullBirthDate(1920, 1, 1));
+        assertFalse(IdCardDates.isValidFullBirthDate(1920, 2, 30));
+        today.add(Calendar.DAY_OF_MONTH, 1);
+        assertFalse(IdCardDates.isValidFullBirthDate(today.get(Calendar.YEAR), today.get(Calendar.MONTH) + 1,
+                today.get(Calendar.DAY_OF_MONTH)));
+    }
+
+    @Test
+    public void ageCountsCompletedYears() {
+        int birth = IdCardDates.toEpochDay(1990, 6, 15);
+        assertEquals(35, IdCardDates.age(birth, IdCardDates.toEpochDay(2026, 6, 14)));
+        assertEquals(36, IdCardDates.age(birth, IdCardDates.toEpochDay(2026, 6, 15)));
+        int leapBirth = IdCardDates.toEpochDay(2000, 2, 29);
+        assertEquals(0, IdCardDates.age(leapBirth, IdCardDates.toEpochDay(2001, 2, 28)));
+        assertEquals(1, IdCardDates.age(leapBirth, IdCardDates.toEpochDay(2001, 3, 1)));
+    }
+}